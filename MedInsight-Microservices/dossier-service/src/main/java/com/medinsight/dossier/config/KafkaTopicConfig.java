@@ -0,0 +1,50 @@
+package com.medinsight.dossier.config;
+
+import com.medinsight.dossier.service.DossierService;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+
+import java.util.Map;
+
+// dossier-service owns the request topics; consumers size their concurrency on the same partition count
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${medinsight.kafka.partitions:6}")
+    private int partitions;
+
+    @Value("${medinsight.kafka.replicas:1}")
+    private short replicas;
+
+    @Value("${medinsight.kafka.partitioner:}")
+    private String partitioner;
+
+    @Bean
+    public NewTopic labRequestsTopic() {
+        return TopicBuilder.name("lab.requests").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic prescriptionRequestsTopic() {
+        return TopicBuilder.name("prescription.requests").partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic dossierCacheInvalidationsTopic() {
+        return TopicBuilder.name(DossierService.INVALIDATION_TOPIC).partitions(1).replicas(replicas).build();
+    }
+
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer partitionerCustomizer() {
+        return factory -> {
+            if (!partitioner.isBlank()) {
+                factory.updateConfigs(Map.of(ProducerConfig.PARTITIONER_CLASS_CONFIG, partitioner));
+            }
+        };
+    }
+}
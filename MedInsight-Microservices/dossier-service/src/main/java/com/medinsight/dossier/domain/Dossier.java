@@ -2,12 +2,15 @@ package com.medinsight.dossier.domain;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = @Index(name = "idx_dossier_patient_id", columnList = "patientId"))
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -0,0 +1,33 @@
+package com.medinsight.dossier.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Event written in the caller's transaction and relayed to Kafka in id order
+@Entity
+@Table(name = "outbox_event")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_event_seq")
+    @SequenceGenerator(name = "outbox_event_seq", sequenceName = "outbox_event_seq", allocationSize = 50)
+    private Long id;
+    private String topic;
+    private String aggregateId;
+    // EventCodec binary encoding
+    @Column(columnDefinition = "bytea")
+    private byte[] payload;
+    private Instant createdAt;
+}
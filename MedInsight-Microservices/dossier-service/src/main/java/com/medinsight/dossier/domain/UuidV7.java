@@ -0,0 +1,28 @@
+package com.medinsight.dossier.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Time-ordered UUIDs (RFC 9562 version 7): 48-bit Unix milliseconds, version, a 12-bit sequence
+ * that keeps ids from the same millisecond monotonic, variant, then 62 random bits.
+ * New ids sort after older ones, so primary-key inserts append to the right edge of the B-tree.
+ */
+public final class UuidV7 {
+
+    // Unix millis << 12 | sequence of the last id handed out
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long now = System.currentTimeMillis() << 12;
+        // If the sequence overflows within one millisecond the timestamp borrows from the next one
+        long stamp = LAST.updateAndGet(prev -> Math.max(prev + 1, now));
+        long msb = ((stamp >>> 12) << 16) | 0x7000L | (stamp & 0xFFFL);
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
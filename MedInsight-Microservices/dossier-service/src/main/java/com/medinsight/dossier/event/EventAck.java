@@ -0,0 +1,13 @@
+package com.medinsight.dossier.event;
+
+// Per-item broker acknowledgement for a batch publish
+public record EventAck(int index, String topic, boolean acknowledged, Integer partition, Long offset, String error) {
+
+    static EventAck ok(int index, String topic, int partition, long offset) {
+        return new EventAck(index, topic, true, partition, offset, null);
+    }
+
+    static EventAck failed(int index, String topic, String error) {
+        return new EventAck(index, topic, false, null, null, error);
+    }
+}
@@ -1,30 +1,69 @@
 package com.medinsight.dossier.event;
 
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medinsight.dossier.domain.OutboxEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class KafkaProducerService {
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
+    private static final long BATCH_ACK_TIMEOUT_SECONDS = 10;
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Pipelined publish: hand every record to the producer first, flush once, then collect the acks
+    public List<EventAck> sendBatch(List<OutboxEvent> events) {
+        List<CompletableFuture<SendResult<String, byte[]>>> futures = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            // Keyed by dossierId: one patient's events share a partition and stay in order
+            futures.add(kafkaTemplate.send(event.getTopic(), event.getAggregateId(), event.getPayload()));
+        }
+        kafkaTemplate.flush();
 
-    public void sendLabRequest(String topic, Object payload) {
-        try {
-            String json = objectMapper.writeValueAsString(payload);
-            kafkaTemplate.send(topic, json);
-            log.info("Sent event to topic {}: {}", topic, json);
-        } catch (Exception e) {
-            log.error("Failed to send Kafka event", e);
+        // One deadline for the whole batch: the relay holds its transaction and lock while it waits
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(BATCH_ACK_TIMEOUT_SECONDS);
+        List<EventAck> acks = new ArrayList<>(events.size());
+        for (int i = 0; i < futures.size(); i++) {
+            OutboxEvent event = events.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                var metadata = futures.get(i).get(remaining, TimeUnit.NANOSECONDS).getRecordMetadata();
+                acks.add(EventAck.ok(i, event.getTopic(), metadata.partition(), metadata.offset()));
+                recordOutcome(event, "acked");
+            } catch (Exception e) {
+                log.error("Failed to send Kafka event {} to {}", event.getId(), event.getTopic(), e);
+                Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+                acks.add(EventAck.failed(i, event.getTopic(), cause.getMessage()));
+                recordOutcome(event, "failed");
+            }
         }
+        log.debug("Sent batch of {} events", events.size());
+        return acks;
     }
 
-    public void sendPrescriptionRequest(String topic, Object payload) {
-        sendLabRequest(topic, payload); // Reusing logic
+    // Commit-to-ack latency per topic and outcome; the count doubles as the throughput counter
+    private void recordOutcome(OutboxEvent event, String outcome) {
+        Timer.builder("dossier.publisher.delivery")
+                .tag("topic", event.getTopic())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.between(event.getCreatedAt(), Instant.now()));
     }
 }
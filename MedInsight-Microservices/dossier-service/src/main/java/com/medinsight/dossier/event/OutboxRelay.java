@@ -0,0 +1,87 @@
+package com.medinsight.dossier.event;
+
+import com.medinsight.dossier.domain.OutboxEvent;
+import com.medinsight.dossier.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxRelay {
+
+    private static final long RELAY_LOCK_KEY = 4_001L;
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaProducerService producerService;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${dossier.outbox.batch-size:500}")
+    private int batchSize;
+
+    private Counter relayed;
+    private Counter failed;
+
+    @PostConstruct
+    public void init() {
+        this.relayed = meterRegistry.counter("dossier.outbox.relayed");
+        this.failed = meterRegistry.counter("dossier.outbox.failed");
+        meterRegistry.gauge("dossier.outbox.pending", outboxRepository, OutboxRepository::count);
+        meterRegistry.gauge("dossier.outbox.lag.seconds", outboxRepository, repo -> repo.findFirstByOrderByIdAsc()
+                .map(e -> Duration.between(e.getCreatedAt(), Instant.now()).toMillis() / 1000.0)
+                .orElse(0.0));
+    }
+
+    // Keep draining while batches come back full, then wait for the next tick
+    @Scheduled(fixedDelayString = "${dossier.outbox.poll-interval-ms:200}")
+    public void drain() {
+        Integer sent;
+        do {
+            sent = transactionTemplate.execute(status -> relayBatch());
+        } while (sent != null && sent == batchSize);
+    }
+
+    private int relayBatch() {
+        if (!outboxRepository.tryRelayLock(RELAY_LOCK_KEY)) {
+            return 0;
+        }
+        List<OutboxEvent> batch = outboxRepository.findAllByOrderByIdAsc(Limit.of(batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<EventAck> acks = producerService.sendBatch(batch);
+
+        // Delete every acknowledged event; failed ones stay and go out again on the next pass. A resent event
+        // can land after later events of the same dossier (they were already pipelined), and one that timed out
+        // may already be on the topic: consumers deduplicate by eventId and do not rely on request order.
+        List<Long> done = new ArrayList<>(batch.size());
+        for (EventAck ack : acks) {
+            if (ack.acknowledged()) {
+                done.add(batch.get(ack.index()).getId());
+            }
+        }
+        outboxRepository.deleteAllByIdInBatch(done);
+        relayed.increment(done.size());
+        if (done.size() < batch.size()) {
+            int failures = batch.size() - done.size();
+            failed.increment(failures);
+            log.warn("Outbox relay: {} of {} events failed, keeping them to resend", failures, batch.size());
+            return 0;
+        }
+        return done.size();
+    }
+}
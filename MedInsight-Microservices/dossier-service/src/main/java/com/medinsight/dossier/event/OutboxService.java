@@ -0,0 +1,41 @@
+package com.medinsight.dossier.event;
+
+import com.medinsight.dossier.domain.OutboxEvent;
+import com.medinsight.dossier.domain.UuidV7;
+import com.medinsight.dossier.repository.OutboxRepository;
+import com.medinsight.messaging.contract.EventCodec;
+import com.medinsight.messaging.contract.RequestEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxRepository outboxRepository;
+
+    // Joins the caller's transaction, so the events commit or roll back with the business write
+    @Transactional
+    public List<OutboxEvent> enqueue(List<? extends RequestEvent> events) {
+        Instant now = Instant.now();
+        List<OutboxEvent> rows = new ArrayList<>(events.size());
+        for (RequestEvent event : events) {
+            // The id consumers deduplicate on; it travels in the payload, so Kafka retries and redeliveries keep it
+            RequestEvent identified = event.eventId() != null ? event : event.withEventId(UuidV7.next().toString());
+            rows.add(new OutboxEvent(null, identified.topic(), identified.dossierId(), EventCodec.encode(identified),
+                    now));
+        }
+        return outboxRepository.saveAll(rows);
+    }
+
+    // Raw key and payload, for messages that are not request events (cache invalidations)
+    @Transactional
+    public OutboxEvent enqueue(String topic, String key, byte[] payload) {
+        return outboxRepository.save(new OutboxEvent(null, topic, key, payload, Instant.now()));
+    }
+}
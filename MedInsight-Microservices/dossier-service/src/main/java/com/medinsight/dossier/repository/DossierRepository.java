@@ -1,7 +1,31 @@
 package com.medinsight.dossier.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import com.medinsight.dossier.domain.Dossier;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface DossierRepository extends JpaRepository<Dossier, String> {
+
+    // Keyset pagination: first page, then everything strictly after the cursor
+    List<Dossier> findAllByOrderByIdAsc(Limit limit);
+
+    List<Dossier> findByIdGreaterThanOrderByIdAsc(String cursor, Limit limit);
+
+    // Backed by idx_dossier_patient_id
+    List<Dossier> findByPatientId(String patientId);
+
+    // Forward-only cursor for NDJSON export; must be consumed inside a read-only transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select d from Dossier d order by d.id")
+    Stream<Dossier> streamAll();
 }
@@ -0,0 +1,20 @@
+package com.medinsight.dossier.repository;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import com.medinsight.dossier.domain.OutboxEvent;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    List<OutboxEvent> findAllByOrderByIdAsc(Limit limit);
+
+    Optional<OutboxEvent> findFirstByOrderByIdAsc();
+
+    // Only one replica relays at a time so the topic order matches the table order
+    @Query(value = "select pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryRelayLock(long key);
+}
@@ -0,0 +1,87 @@
+package com.medinsight.dossier.service;
+
+import com.medinsight.dossier.domain.Dossier;
+import com.medinsight.dossier.event.OutboxService;
+import com.medinsight.dossier.repository.DossierRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DossierService {
+
+    public static final String CACHE = "dossiers";
+    public static final String INVALIDATION_TOPIC = "dossier.cache.invalidations";
+
+    private final DossierRepository repo;
+    private final OutboxService outboxService;
+    private final Optional<PatientIndex> patientIndex;
+
+    // Read-through: size and TTL come from spring.cache.caffeine.spec
+    @Cacheable(cacheNames = CACHE)
+    public Optional<Dossier> findById(String id) {
+        return repo.findById(id);
+    }
+
+    // A dossier is only an id and a patientId, so the in-memory index can answer without the database
+    public List<Dossier> findByPatientId(String patientId) {
+        return patientIndex.flatMap(index -> index.lookup(patientId))
+                .map(ids -> ids.stream().map(id -> new Dossier(id, patientId)).toList())
+                .orElseGet(() -> repo.findByPatientId(patientId));
+    }
+
+    // Evicts locally; the invalidation goes through the outbox, so every replica gets it once committed
+    @Transactional
+    @CacheEvict(cacheNames = CACHE, key = "#dossier.id")
+    public Dossier save(Dossier dossier) {
+        String previousPatientId = dossier.getId() == null ? null
+                : repo.findById(dossier.getId()).map(Dossier::getPatientId).orElse(null);
+        Dossier saved = repo.save(dossier);
+        // Payload: the patient the dossier moved away from, empty if it did not move
+        String movedFrom = previousPatientId != null && !previousPatientId.equals(saved.getPatientId())
+                ? previousPatientId : "";
+        outboxService.enqueue(INVALIDATION_TOPIC, saved.getId(), movedFrom.getBytes(StandardCharsets.UTF_8));
+        patientIndex.ifPresent(index -> TransactionSynchronizationManager.registerSynchronization(
+                new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        updateIndex(index, saved.getId(), saved.getPatientId(), movedFrom);
+                    }
+                }));
+        return saved;
+    }
+
+    // Every replica gets its own group so each one sees every invalidation
+    @KafkaListener(topics = INVALIDATION_TOPIC, groupId = "dossier-cache-${random.uuid}",
+            properties = "auto.offset.reset=latest")
+    @CacheEvict(cacheNames = CACHE, key = "#id")
+    public void onInvalidation(@Header(KafkaHeaders.RECEIVED_KEY) String id,
+            @Payload(required = false) String movedFrom) {
+        log.debug("Evicted dossier {} from cache", id);
+        // Dossiers created or moved on another replica reach this replica's patient index here
+        patientIndex.ifPresent(index -> repo.findById(id)
+                .ifPresent(d -> updateIndex(index, d.getId(), d.getPatientId(), movedFrom)));
+    }
+
+    private static void updateIndex(PatientIndex index, String id, String patientId, String movedFrom) {
+        if (movedFrom != null && !movedFrom.isEmpty()) {
+            index.remove(movedFrom, id);
+        }
+        index.add(patientId, id);
+    }
+}
@@ -0,0 +1,9 @@
+package com.medinsight.dossier.service;
+
+import java.util.List;
+import java.util.Map;
+
+// sources maps each downstream service to "ok" or the reason its part is missing
+public record DossierTimeline(String dossierId, List<TimelineEntry> entries, Map<String, String> sources,
+        boolean partial) {
+}
@@ -0,0 +1,207 @@
+package com.medinsight.dossier.service;
+
+import com.medinsight.dossier.domain.Dossier;
+import com.medinsight.dossier.repository.DossierRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// In-memory patientId -> dossier ids. UUID ids are packed into two longs each, anything else is kept as-is.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "dossier.patient-index.enabled", havingValue = "true")
+public class PatientIndex {
+
+    private final DossierRepository repo;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+
+    private volatile Maps maps = new Maps();
+    // Changes made while a rebuild streams the table, replayed onto the new maps before they are swapped in
+    private List<Consumer<Maps>> duringRebuild;
+    private volatile boolean ready;
+
+    private record Maps(ConcurrentHashMap<String, long[]> uuidIds, ConcurrentHashMap<String, String[]> otherIds) {
+        Maps() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    // At startup, then periodically so a missed invalidation cannot leave the index wrong for long
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${dossier.patient-index.rebuild-cron:0 0 4 * * *}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Maps fresh = new Maps();
+        synchronized (this) {
+            if (duringRebuild != null) {
+                log.info("Patient index rebuild already running, skipping");
+                return;
+            }
+            duringRebuild = new ArrayList<>();
+        }
+        Long count;
+        try {
+            count = transactionTemplate.execute(status -> {
+                status.setRollbackOnly();
+                long n = 0;
+                try (Stream<Dossier> dossiers = repo.streamAll()) {
+                    var it = dossiers.iterator();
+                    while (it.hasNext()) {
+                        Dossier d = it.next();
+                        add(fresh, d.getPatientId(), d.getId());
+                        entityManager.detach(d);
+                        n++;
+                    }
+                }
+                return n;
+            });
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                duringRebuild = null;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            duringRebuild.forEach(change -> change.accept(fresh));
+            duringRebuild = null;
+            maps = fresh;
+        }
+        ready = true;
+        log.info("Patient index built: {} dossiers, {} patients in {} ms", count,
+                fresh.uuidIds().size() + fresh.otherIds().size(), System.currentTimeMillis() - start);
+    }
+
+    public void add(String patientId, String id) {
+        apply(m -> add(m, patientId, id));
+    }
+
+    // A dossier moved to another patient must no longer be listed under the previous one
+    public void remove(String patientId, String id) {
+        apply(m -> remove(m, patientId, id));
+    }
+
+    private synchronized void apply(Consumer<Maps> change) {
+        change.accept(maps);
+        if (duringRebuild != null) {
+            duringRebuild.add(change);
+        }
+    }
+
+    private static void add(Maps m, String patientId, String id) {
+        if (patientId == null || id == null) {
+            return;
+        }
+        UUID uuid = parseUuid(id);
+        if (uuid == null) {
+            m.otherIds().merge(patientId, new String[] { id }, PatientIndex::appendDistinct);
+            return;
+        }
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        m.uuidIds().compute(patientId, (k, ids) -> {
+            if (ids == null) {
+                return new long[] { msb, lsb };
+            }
+            for (int i = 0; i < ids.length; i += 2) {
+                if (ids[i] == msb && ids[i + 1] == lsb) {
+                    return ids;
+                }
+            }
+            long[] grown = Arrays.copyOf(ids, ids.length + 2);
+            grown[ids.length] = msb;
+            grown[ids.length + 1] = lsb;
+            return grown;
+        });
+    }
+
+    private static void remove(Maps m, String patientId, String id) {
+        if (patientId == null || id == null) {
+            return;
+        }
+        UUID uuid = parseUuid(id);
+        if (uuid == null) {
+            m.otherIds().computeIfPresent(patientId, (k, ids) -> {
+                String[] kept = Arrays.stream(ids).filter(other -> !other.equals(id)).toArray(String[]::new);
+                return kept.length > 0 ? kept : null;
+            });
+            return;
+        }
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        m.uuidIds().computeIfPresent(patientId, (k, ids) -> {
+            for (int i = 0; i < ids.length; i += 2) {
+                if (ids[i] == msb && ids[i + 1] == lsb) {
+                    if (ids.length == 2) {
+                        return null;
+                    }
+                    long[] shrunk = new long[ids.length - 2];
+                    System.arraycopy(ids, 0, shrunk, 0, i);
+                    System.arraycopy(ids, i + 2, shrunk, i, ids.length - i - 2);
+                    return shrunk;
+                }
+            }
+            return ids;
+        });
+    }
+
+    // Empty until the startup rebuild has finished; callers then go to the database
+    public Optional<List<String>> lookup(String patientId) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        Maps m = maps;
+        List<String> ids = new ArrayList<>();
+        long[] packed = m.uuidIds().get(patientId);
+        if (packed != null) {
+            for (int i = 0; i < packed.length; i += 2) {
+                ids.add(new UUID(packed[i], packed[i + 1]).toString());
+            }
+        }
+        String[] other = m.otherIds().get(patientId);
+        if (other != null) {
+            ids.addAll(Arrays.asList(other));
+        }
+        return Optional.of(ids);
+    }
+
+    private static UUID parseUuid(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            // Only keep the packed form when it prints back to the exact same string
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String[] appendDistinct(String[] ids, String[] added) {
+        for (String id : ids) {
+            if (id.equals(added[0])) {
+                return ids;
+            }
+        }
+        String[] grown = Arrays.copyOf(ids, ids.length + 1);
+        grown[ids.length] = added[0];
+        return grown;
+    }
+}
@@ -0,0 +1,6 @@
+package com.medinsight.dossier.service;
+
+// One lab order or prescription of a dossier, as returned by lab-service / ordonnance-service
+public record TimelineEntry(String type, Long id, String consultationId, String detail, String status,
+        String result) {
+}
@@ -0,0 +1,156 @@
+package com.medinsight.dossier.service;
+
+import com.medinsight.dossier.security.UserContext;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+// Fans out to lab-service and ordonnance-service on virtual threads and merges whatever comes back in time
+@Service
+@Slf4j
+public class TimelineService {
+
+    private record LabOrderView(Long id, String consultationId, String testCode, String status, String result) {
+    }
+
+    private record LabOrderPageView(List<LabOrderView> items, Long nextCursor) {
+    }
+
+    private record PrescriptionView(Long id, String consultationId, String medicationDetails, String status) {
+    }
+
+    private static final int LAB_PAGE_SIZE = 1000;
+
+    private final RestClient labClient;
+    private final RestClient ordonnanceClient;
+    private final Duration callTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public TimelineService(@Value("${medinsight.lab-service.url}") String labUrl,
+            @Value("${medinsight.ordonnance-service.url}") String ordonnanceUrl,
+            @Value("${dossier.timeline.call-timeout-ms:2000}") long callTimeoutMs) {
+        this.callTimeout = Duration.ofMillis(callTimeoutMs);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(callTimeout)
+                .executor(executor)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(callTimeout);
+        this.labClient = RestClient.builder().baseUrl(labUrl).requestFactory(requestFactory).build();
+        this.ordonnanceClient = RestClient.builder().baseUrl(ordonnanceUrl).requestFactory(requestFactory).build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public DossierTimeline timeline(String dossierId, String consultationId) {
+        // UserContext is thread-local: capture the caller's identity before leaving the request thread
+        UserContext caller = UserContext.getCurrent();
+
+        Future<LabOrderView[]> labs = executor.submit(() -> fetchLabOrders(dossierId, consultationId, caller));
+        Future<PrescriptionView[]> prescriptions = executor.submit(() -> fetch(ordonnanceClient,
+                "/api/prescriptions", Map.of("dossierId", dossierId), caller, PrescriptionView[].class));
+
+        long deadline = System.nanoTime() + callTimeout.toNanos();
+        Map<String, String> sources = new LinkedHashMap<>();
+        List<TimelineEntry> entries = new ArrayList<>();
+        collect("lab-service", labs, deadline, sources, entries,
+                l -> new TimelineEntry("LAB_ORDER", l.id(), l.consultationId(), l.testCode(), l.status(), l.result()));
+        collect("ordonnance-service", prescriptions, deadline, sources, entries,
+                p -> new TimelineEntry("PRESCRIPTION", p.id(), p.consultationId(), p.medicationDetails(), p.status(),
+                        null));
+
+        List<TimelineEntry> merged = entries.stream()
+                .filter(e -> consultationId == null || consultationId.equals(e.consultationId()))
+                .sorted(Comparator.comparing(TimelineEntry::consultationId, Comparator.nullsLast(String::compareTo))
+                        .thenComparing(TimelineEntry::type)
+                        .thenComparing(TimelineEntry::id, Comparator.nullsLast(Long::compareTo)))
+                .toList();
+        boolean partial = sources.values().stream().anyMatch(s -> !"ok".equals(s));
+        return new DossierTimeline(dossierId, merged, sources, partial);
+    }
+
+    // lab-service pages its list and filters by consultation itself; results are asked for explicitly
+    private LabOrderView[] fetchLabOrders(String dossierId, String consultationId, UserContext caller) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("dossierId", dossierId);
+        if (consultationId != null) {
+            params.put("consultationId", consultationId);
+        }
+        params.put("includeResult", true);
+        params.put("limit", LAB_PAGE_SIZE);
+        List<LabOrderView> orders = new ArrayList<>();
+        LabOrderPageView page;
+        do {
+            page = fetch(labClient, "/api/lab-orders", params, caller, LabOrderPageView.class);
+            if (page == null) {
+                break;
+            }
+            orders.addAll(page.items());
+            params.put("after", page.nextCursor());
+        } while (page.nextCursor() != null);
+        return orders.toArray(LabOrderView[]::new);
+    }
+
+    private static <T> T fetch(RestClient client, String path, Map<String, Object> params, UserContext caller,
+            Class<T> type) {
+        return client.get()
+                .uri(uri -> {
+                    uri.path(path);
+                    params.forEach(uri::queryParam);
+                    return uri.build();
+                })
+                .headers(h -> {
+                    if (caller.getUserId() != null) {
+                        h.set("X-User-Id", caller.getUserId());
+                        h.set("X-User-Username", Objects.toString(caller.getUsername(), ""));
+                        h.set("X-User-Email", Objects.toString(caller.getEmail(), ""));
+                        h.set("X-User-Roles", String.join(",", caller.getRoles()));
+                    }
+                })
+                .retrieve()
+                .body(type);
+    }
+
+    private static <T> void collect(String source, Future<T[]> future, long deadline, Map<String, String> sources,
+            List<TimelineEntry> entries, Function<T, TimelineEntry> mapper) {
+        try {
+            T[] items = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (items != null) {
+                Arrays.stream(items).map(mapper).forEach(entries::add);
+            }
+            sources.put(source, "ok");
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            sources.put(source, "timeout");
+        } catch (ExecutionException e) {
+            log.warn("Timeline call to {} failed: {}", source, e.getCause().getMessage());
+            sources.put(source, "error: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sources.put(source, "interrupted");
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.medinsight.dossier.web;
+
+import java.util.List;
+
+// Lab tests and medication lines requested together for one consultation
+public record ConsultationOrderBatch(List<String> testCodes, List<String> medications) {
+}
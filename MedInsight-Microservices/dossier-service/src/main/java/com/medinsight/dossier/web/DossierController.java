@@ -2,12 +2,32 @@ package com.medinsight.dossier.web;
 
 import org.springframework.web.bind.annotation.*;
 import com.medinsight.dossier.domain.Dossier;
+import com.medinsight.dossier.domain.OutboxEvent;
+import com.medinsight.dossier.domain.UuidV7;
+import com.medinsight.dossier.event.OutboxService;
 import com.medinsight.dossier.repository.DossierRepository;
-import com.medinsight.dossier.event.KafkaProducerService;
+import com.medinsight.dossier.service.DossierService;
+import com.medinsight.dossier.service.TimelineService;
+import com.medinsight.messaging.contract.LabRequestedEvent;
+import com.medinsight.messaging.contract.PrescriptionRequestedEvent;
+import com.medinsight.messaging.contract.RequestEvent;
 import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.UUID;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import com.medinsight.dossier.security.UserContext;
 import org.springframework.http.HttpStatus;
@@ -19,14 +39,69 @@ import org.springframework.http.ResponseEntity;
 public class DossierController {
 
     private final DossierRepository repo;
-    private final KafkaProducerService producerService;
+    private final DossierService dossierService;
+    private final TimelineService timelineService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_ITEMS = 200;
+
+    // Keyset pagination: pass the previous page's nextCursor as "after"
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> getAll(@RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (!UserContext.getCurrent().hasRole("dossier:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:read");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Dossier> items = after == null
+                ? repo.findAllByOrderByIdAsc(Limit.of(size))
+                : repo.findByIdGreaterThanOrderByIdAsc(after, Limit.of(size));
+        String nextCursor = items.size() < size ? null : items.get(items.size() - 1).getId();
+        return ResponseEntity.ok(new DossierPage(items, nextCursor));
+    }
+
+    @GetMapping(params = "patientId")
+    public ResponseEntity<?> getByPatient(@RequestParam String patientId) {
+        if (!UserContext.getCurrent().hasRole("dossier:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:read");
+        }
+        return ResponseEntity.ok(dossierService.findByPatientId(patientId));
+    }
+
+    // Full export as NDJSON, one dossier per line, read through a server-side cursor
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> stream() {
         if (!UserContext.getCurrent().hasRole("dossier:read")) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:read");
         }
-        return ResponseEntity.ok(repo.findAll());
+        StreamingResponseBody body = out -> transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            try (Stream<Dossier> dossiers = repo.streamAll()) {
+                writeNdjson(dossiers, out);
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private void writeNdjson(Stream<Dossier> dossiers, OutputStream out) {
+        try (SequenceWriter writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                .writeValues(new BufferedOutputStream(out, 64 * 1024))) {
+            var it = dossiers.iterator();
+            while (it.hasNext()) {
+                Dossier d = it.next();
+                writer.write(d);
+                // Keep the persistence context empty so memory stays flat
+                entityManager.detach(d);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @PostMapping
@@ -35,9 +110,29 @@ public class DossierController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:write");
         }
         if (dossier.getId() == null) {
-            dossier.setId(UUID.randomUUID().toString());
+            // Time-ordered so inserts stay local in the primary-key index and keyset pages follow creation order
+            dossier.setId(UuidV7.next().toString());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(dossierService.save(dossier));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getById(@PathVariable String id) {
+        if (!UserContext.getCurrent().hasRole("dossier:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:read");
         }
-        return ResponseEntity.status(HttpStatus.CREATED).body(repo.save(dossier));
+        return dossierService.findById(id).<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Lab orders and prescriptions of a dossier in one call; partial=true when a service did not answer in time
+    @GetMapping("/{dossierId}/timeline")
+    public ResponseEntity<?> getTimeline(@PathVariable String dossierId,
+            @RequestParam(required = false) String consultationId) {
+        if (!UserContext.getCurrent().hasRole("dossier:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:read");
+        }
+        return ResponseEntity.ok(timelineService.timeline(dossierId, consultationId));
     }
 
     // Trigger Lab Order
@@ -48,12 +143,10 @@ public class DossierController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:write");
         }
         // Construct event payload
-        Map<String, String> event = Map.of(
-                "dossierId", dossierId,
-                "consultationId", consultationId,
-                "testCode", body.getOrDefault("testCode", "UNKNOWN"));
+        LabRequestedEvent event = new LabRequestedEvent(dossierId, consultationId,
+                body.getOrDefault("testCode", "UNKNOWN"));
 
-        producerService.sendLabRequest("lab.requests", event);
+        outboxService.enqueue(List.of(event));
         return ResponseEntity.ok("Lab Order Requested");
     }
 
@@ -65,12 +158,44 @@ public class DossierController {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:write");
         }
         // Construct event payload
-        Map<String, String> event = Map.of(
-                "dossierId", dossierId,
-                "consultationId", consultationId,
-                "medicationDetails", body.getOrDefault("medicationDetails", "Paracetamol"));
+        PrescriptionRequestedEvent event = new PrescriptionRequestedEvent(dossierId, consultationId,
+                body.getOrDefault("medicationDetails", "Paracetamol"));
 
-        producerService.sendPrescriptionRequest("prescription.requests", event);
+        outboxService.enqueue(List.of(event));
         return ResponseEntity.ok("Prescription Requested");
     }
+
+    // Trigger all lab orders and prescriptions of a consultation in one call
+    @PostMapping("/{dossierId}/consultations/{consultationId}/orders")
+    public ResponseEntity<?> requestOrders(@PathVariable String dossierId, @PathVariable String consultationId,
+            @RequestBody ConsultationOrderBatch body) {
+        if (!UserContext.getCurrent().hasRole("dossier:write")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role dossier:write");
+        }
+        List<String> testCodes = body.testCodes() != null ? body.testCodes() : List.of();
+        List<String> medications = body.medications() != null ? body.medications() : List.of();
+        if (testCodes.isEmpty() && medications.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one testCode or medication is required");
+        }
+        if (testCodes.size() + medications.size() > MAX_BATCH_ITEMS) {
+            return ResponseEntity.badRequest().body("Batch limited to " + MAX_BATCH_ITEMS + " items");
+        }
+
+        // Items keep request order: lab orders first, then prescriptions
+        List<RequestEvent> events = new ArrayList<>(testCodes.size() + medications.size());
+        for (String testCode : testCodes) {
+            events.add(new LabRequestedEvent(dossierId, consultationId, testCode));
+        }
+        for (String medication : medications) {
+            events.add(new PrescriptionRequestedEvent(dossierId, consultationId, medication));
+        }
+
+        // One transaction for the whole batch; the outbox relay publishes it as one pipelined Kafka batch
+        List<OutboxEvent> queued = outboxService.enqueue(events);
+        List<QueuedEvent> acks = new ArrayList<>(queued.size());
+        for (int i = 0; i < queued.size(); i++) {
+            acks.add(new QueuedEvent(i, queued.get(i).getTopic(), queued.get(i).getId()));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(acks);
+    }
 }
@@ -0,0 +1,9 @@
+package com.medinsight.dossier.web;
+
+import com.medinsight.dossier.domain.Dossier;
+
+import java.util.List;
+
+// One keyset page; nextCursor is null on the last page
+public record DossierPage(List<Dossier> items, String nextCursor) {
+}
@@ -0,0 +1,5 @@
+package com.medinsight.dossier.web;
+
+// Per-item acknowledgement: the event is committed to the outbox under this id
+public record QueuedEvent(int index, String topic, Long eventId) {
+}
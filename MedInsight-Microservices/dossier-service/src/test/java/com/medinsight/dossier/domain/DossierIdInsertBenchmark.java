@@ -0,0 +1,79 @@
+package com.medinsight.dossier.domain;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/*
+ * Insert throughput and primary-key index size for random v4 ids versus UuidV7, as varchar and as
+ * native uuid. Needs the docker-compose Postgres; works in scratch tables and drops them afterwards.
+ *
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.medinsight.dossier.domain.DossierIdInsertBenchmark -Drows=1000000
+ */
+public class DossierIdInsertBenchmark {
+
+    private static final int BATCH = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String url = System.getProperty("url", "jdbc:postgresql://localhost:5434/medinsight_platform");
+        String user = System.getProperty("user", "admin");
+        String password = System.getProperty("password", "password");
+        int rows = Integer.getInteger("rows", 500_000);
+
+        try (Connection c = DriverManager.getConnection(url, user, password)) {
+            c.setAutoCommit(false);
+            run(c, "bench_dossier_v4_text", "varchar(255)", rows, () -> UUID.randomUUID().toString());
+            run(c, "bench_dossier_v7_text", "varchar(255)", rows, () -> UuidV7.next().toString());
+            run(c, "bench_dossier_v7_uuid", "uuid", rows, () -> UuidV7.next().toString());
+        }
+    }
+
+    private static void run(Connection c, String table, String idType, int rows, Supplier<String> ids)
+            throws Exception {
+        try (Statement st = c.createStatement()) {
+            st.execute("drop table if exists " + table);
+            st.execute("create table " + table + " (id " + idType + " primary key, patient_id varchar(255))");
+        }
+        c.commit();
+
+        boolean nativeUuid = idType.equals("uuid");
+        long start = System.nanoTime();
+        try (PreparedStatement ps = c.prepareStatement("insert into " + table + " (id, patient_id) values (?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                if (nativeUuid) {
+                    ps.setObject(1, UUID.fromString(ids.get()), Types.OTHER);
+                } else {
+                    ps.setString(1, ids.get());
+                }
+                ps.setString(2, "P" + (i % 50_000));
+                ps.addBatch();
+                if (i % BATCH == 0) {
+                    ps.executeBatch();
+                    c.commit();
+                }
+            }
+            ps.executeBatch();
+            c.commit();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long indexBytes;
+        try (Statement st = c.createStatement();
+                ResultSet rs = st.executeQuery("select pg_relation_size('" + table + "_pkey')")) {
+            rs.next();
+            indexBytes = rs.getLong(1);
+        }
+        System.out.printf("%-24s %10.0f rows/s   pkey %8.1f MB%n", table, rows / seconds, indexBytes / 1048576.0);
+
+        try (Statement st = c.createStatement()) {
+            st.execute("drop table " + table);
+        }
+        c.commit();
+    }
+}
@@ -0,0 +1,91 @@
+package com.medinsight.dossier.event;
+
+import com.medinsight.dossier.domain.OutboxEvent;
+import com.medinsight.dossier.repository.OutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxRelayTest {
+
+    private final OutboxRepository repository = mock(OutboxRepository.class);
+    private final KafkaProducerService producer = mock(KafkaProducerService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final OutboxRelay relay = new OutboxRelay(repository, producer,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), registry);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(relay, "batchSize", 3);
+        relay.init();
+        when(repository.tryRelayLock(anyLong())).thenReturn(true);
+    }
+
+    @Test
+    void deletesEveryAcknowledgedEventAndKeepsTheFailedOnes() {
+        List<OutboxEvent> batch = List.of(event(1, "d-1"), event(2, "d-1"), event(3, "d-2"));
+        when(repository.findAllByOrderByIdAsc(any(Limit.class))).thenReturn(batch);
+        when(producer.sendBatch(batch)).thenReturn(List.of(
+                EventAck.failed(0, "lab.requests", "timeout"),
+                EventAck.ok(1, "lab.requests", 0, 10),
+                EventAck.ok(2, "lab.requests", 1, 4)));
+
+        relay.drain();
+
+        // The later event of d-1 is not held back behind the failed one
+        verify(repository).deleteAllByIdInBatch(List.of(2L, 3L));
+        assertThat(registry.counter("dossier.outbox.relayed").count()).isEqualTo(2);
+        assertThat(registry.counter("dossier.outbox.failed").count()).isEqualTo(1);
+        // A failed pass waits for the next tick instead of retrying straight away
+        verify(producer, times(1)).sendBatch(any());
+    }
+
+    @Test
+    void keepsDrainingWhileBatchesComeBackFull() {
+        List<OutboxEvent> full = List.of(event(1, "d-1"), event(2, "d-2"), event(3, "d-3"));
+        List<OutboxEvent> rest = List.of(event(4, "d-1"));
+        when(repository.findAllByOrderByIdAsc(any(Limit.class))).thenReturn(full, rest);
+        when(producer.sendBatch(full)).thenReturn(List.of(
+                EventAck.ok(0, "lab.requests", 0, 1),
+                EventAck.ok(1, "lab.requests", 1, 1),
+                EventAck.ok(2, "lab.requests", 2, 1)));
+        when(producer.sendBatch(rest)).thenReturn(List.of(EventAck.ok(0, "lab.requests", 0, 2)));
+
+        relay.drain();
+
+        verify(repository).deleteAllByIdInBatch(List.of(1L, 2L, 3L));
+        verify(repository).deleteAllByIdInBatch(List.of(4L));
+        assertThat(registry.counter("dossier.outbox.relayed").count()).isEqualTo(4);
+        assertThat(registry.counter("dossier.outbox.failed").count()).isZero();
+    }
+
+    @Test
+    void doesNothingWhenAnotherReplicaHoldsTheLock() {
+        when(repository.tryRelayLock(anyLong())).thenReturn(false);
+
+        relay.drain();
+
+        verify(repository, never()).findAllByOrderByIdAsc(any(Limit.class));
+        verify(producer, never()).sendBatch(any());
+    }
+
+    private static OutboxEvent event(long id, String dossierId) {
+        return new OutboxEvent(id, "lab.requests", dossierId, new byte[] { 1 }, Instant.now());
+    }
+}
@@ -0,0 +1,83 @@
+package com.medinsight.dossier.service;
+
+import com.medinsight.dossier.domain.Dossier;
+import com.medinsight.dossier.event.OutboxService;
+import com.medinsight.dossier.repository.DossierRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DossierServiceTest {
+
+    private final DossierRepository repo = mock(DossierRepository.class);
+    private final OutboxService outbox = mock(OutboxService.class);
+    private final PatientIndex index = mock(PatientIndex.class);
+    private final DossierService service = new DossierService(repo, outbox, Optional.of(index));
+
+    @BeforeEach
+    void startSynchronization() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void movedDossierNamesItsPreviousPatientAndUpdatesTheIndexOnCommit() {
+        when(repo.findById("d-1")).thenReturn(Optional.of(new Dossier("d-1", "p-1")));
+        when(repo.save(any())).thenAnswer(call -> call.getArgument(0));
+
+        service.save(new Dossier("d-1", "p-2"));
+
+        verify(outbox).enqueue(DossierService.INVALIDATION_TOPIC, "d-1", "p-1".getBytes(StandardCharsets.UTF_8));
+        verify(index, never()).add(any(), any());
+        commit();
+        var order = inOrder(index);
+        order.verify(index).remove("p-1", "d-1");
+        order.verify(index).add("p-2", "d-1");
+    }
+
+    @Test
+    void newDossierSendsAnEmptyPayload() {
+        when(repo.findById("d-1")).thenReturn(Optional.empty());
+        when(repo.save(any())).thenAnswer(call -> call.getArgument(0));
+
+        service.save(new Dossier("d-1", "p-1"));
+        commit();
+
+        verify(outbox).enqueue(DossierService.INVALIDATION_TOPIC, "d-1", new byte[0]);
+        verify(index, never()).remove(any(), any());
+        verify(index).add("p-1", "d-1");
+    }
+
+    @Test
+    void invalidationFromAnotherReplicaMovesTheDossierInTheIndex() {
+        when(repo.findById("d-1")).thenReturn(Optional.of(new Dossier("d-1", "p-2")));
+
+        service.onInvalidation("d-1", "p-1");
+        service.onInvalidation("d-2", "");
+
+        verify(index).remove("p-1", "d-1");
+        verify(index).add("p-2", "d-1");
+        verify(index, never()).remove(any(), eq("d-2"));
+    }
+
+    private static void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+}
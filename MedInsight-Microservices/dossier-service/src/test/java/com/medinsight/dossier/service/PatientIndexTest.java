@@ -0,0 +1,86 @@
+package com.medinsight.dossier.service;
+
+import com.medinsight.dossier.domain.Dossier;
+import com.medinsight.dossier.repository.DossierRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PatientIndexTest {
+
+    private static final String D1 = "018f2c1e-7a40-7000-8000-000000000001";
+    private static final String D2 = "018f2c1e-7a40-7000-8000-000000000002";
+
+    private final DossierRepository repo = mock(DossierRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final PatientIndex index = new PatientIndex(repo, new TransactionTemplate(transactionManager),
+            mock(EntityManager.class));
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    void isEmptyUntilBuilt() {
+        assertThat(index.lookup("p-1")).isEmpty();
+    }
+
+    @Test
+    void movedDossierIsOnlyListedUnderItsNewPatient() {
+        when(repo.streamAll()).thenReturn(Stream.of(new Dossier(D1, "p-1"), new Dossier(D2, "p-1"),
+                new Dossier("legacy-7", "p-1")));
+        index.rebuild();
+
+        index.remove("p-1", D1);
+        index.add("p-2", D1);
+        index.remove("p-1", "legacy-7");
+        index.add("p-2", "legacy-7");
+
+        assertThat(index.lookup("p-1")).contains(List.of(D2));
+        assertThat(index.lookup("p-2").orElseThrow()).containsExactlyInAnyOrder(D1, "legacy-7");
+    }
+
+    @Test
+    void removingTheLastDossierOfAPatientLeavesNothingBehind() {
+        when(repo.streamAll()).thenReturn(Stream.of(new Dossier(D1, "p-1")));
+        index.rebuild();
+
+        index.remove("p-1", D1);
+        index.remove("p-1", D1);
+
+        assertThat(index.lookup("p-1")).contains(List.of());
+    }
+
+    @Test
+    void rebuildDropsEntriesTheDatabaseNoLongerHas() {
+        when(repo.streamAll()).thenReturn(Stream.of(new Dossier(D1, "p-1")), Stream.of(new Dossier(D1, "p-2")));
+        index.rebuild();
+        // The invalidation for the move never arrived
+        index.rebuild();
+
+        assertThat(index.lookup("p-1")).contains(List.of());
+        assertThat(index.lookup("p-2")).contains(List.of(D1));
+    }
+
+    @Test
+    void changesMadeWhileRebuildingSurviveTheSwap() {
+        // The stream was opened before D2 was saved, so it does not return it
+        when(repo.streamAll()).thenReturn(Stream.of(new Dossier(D1, "p-1")).peek(d -> index.add("p-1", D2)));
+
+        index.rebuild();
+
+        assertThat(index.lookup("p-1").orElseThrow()).containsExactlyInAnyOrder(D1, D2);
+    }
+}
@@ -0,0 +1,34 @@
+package com.medinsight.lab.config;
+
+import com.medinsight.messaging.consumer.RetryRouter;
+import com.medinsight.messaging.contract.LabRequestedEvent;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The request topic itself belongs to dossier-service; the retry tiers and the DLT belong to this consumer
+@Configuration
+public class KafkaTopicConfig {
+
+    @Value("${medinsight.kafka.partitions:6}")
+    private int partitions;
+
+    @Value("${medinsight.kafka.replicas:1}")
+    private short replicas;
+
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics(RetryRouter router) {
+        List<NewTopic> topics = new ArrayList<>();
+        for (String topic : router.retryTopics(LabRequestedEvent.TOPIC)) {
+            topics.add(TopicBuilder.name(topic).partitions(partitions).replicas(replicas).build());
+        }
+        topics.add(TopicBuilder.name(router.dltTopic(LabRequestedEvent.TOPIC)).partitions(partitions).replicas(replicas).build());
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+}
@@ -0,0 +1,22 @@
+package com.medinsight.lab.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Per-dossier lab order counters, kept up to date by DossierLabSummaryService in the writers' transactions
+@Entity
+@Table(name = "dossier_lab_summary")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DossierLabSummary {
+    @Id
+    private String dossierId;
+    private long totalOrders;
+    private long pendingOrders;
+    private long completedOrders;
+}
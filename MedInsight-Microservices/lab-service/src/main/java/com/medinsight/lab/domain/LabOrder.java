@@ -1,24 +1,39 @@
 package com.medinsight.lab.domain;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+// Composite indexes for the filtered list queries, each ending in id so keyset pages are read in index order
+@Table(indexes = {
+        @Index(name = "idx_lab_order_dossier_status", columnList = "dossierId, status, id"),
+        @Index(name = "idx_lab_order_consultation", columnList = "consultationId, id"),
+        @Index(name = "idx_lab_order_status_test", columnList = "status, testCode, id")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class LabOrder {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence (one round trip per 50 ids) so Hibernate can batch inserts; IDENTITY cannot
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lab_order_seq")
+    @SequenceGenerator(name = "lab_order_seq", sequenceName = "lab_order_seq", allocationSize = 50)
     private Long id;
     private String dossierId;
     private String consultationId;
     private String testCode;
     private String status;
-    private String result;
+    // RequestEvent.eventId; the unique constraint is what makes consumption idempotent (null for older rows)
+    @Column(unique = true)
+    private String eventId;
+    // The result lives in lab_result (LabResult), compressed and only read on demand
 }
@@ -0,0 +1,28 @@
+package com.medinsight.lab.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Result of a lab order, kept out of the lab_order row so list queries never read it; shares the order's id
+@Entity
+@Table(name = "lab_result")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LabResult {
+    public static final String GZIP = "gzip";
+
+    @Id
+    private Long labOrderId;
+    // Content-Encoding of content; gzip for everything written by this service
+    private String encoding;
+    // Uncompressed UTF-8 length in bytes
+    private int originalSize;
+    @Column(columnDefinition = "bytea")
+    private byte[] content;
+}
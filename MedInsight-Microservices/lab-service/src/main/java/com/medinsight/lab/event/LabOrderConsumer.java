@@ -1,50 +1,182 @@
 package com.medinsight.lab.event;
 
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.medinsight.lab.domain.LabOrder;
-import com.medinsight.lab.repository.LabOrderRepository;
+import com.medinsight.lab.service.LabOrderChange;
+import com.medinsight.lab.service.LabOrderEventHub;
+import com.medinsight.lab.service.LabOrderService;
+import com.medinsight.messaging.consumer.ConsumerMetrics;
+import com.medinsight.messaging.consumer.KeyOrderedDispatcher;
+import com.medinsight.messaging.consumer.RetryRouter;
+import com.medinsight.messaging.consumer.RetryTierListeners;
+import com.medinsight.messaging.contract.LabRequestedEvent;
+import com.medinsight.messaging.contract.RequestEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class LabOrderConsumer {
 
-    private final LabOrderRepository labOrderRepository;
-    private final ObjectMapper objectMapper;
+    private final LabOrderService labOrderService;
+    private final KeyOrderedDispatcher dispatcher;
+    private final RetryRouter router;
+    private final RetryTierListeners retryTiers;
+    private final LabOrderEventHub eventHub;
+    private final ConsumerMetrics metrics;
+
+    private static final String LISTENER = "lab-requests";
+    private static final String RETRY_LISTENER = "lab-requests-retry";
+
+    // batch: one transaction per poll with JDBC batching; keyed-parallel: one virtual thread per dossierId
+    @Value("${lab.consumer.processing:batch}")
+    private String processing;
+
+    @Value("${medinsight.kafka.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
 
-    @KafkaListener(topics = "lab.requests", groupId = "lab-group")
-    public void consumeLabRequest(String message) {
-        log.info("Received lab request: {}", message);
+    // Payload is decoded by RequestEventDeserializer (see spring.kafka.consumer.properties)
+    @KafkaListener(topics = LabRequestedEvent.TOPIC, groupId = "lab-group", batch = "true",
+            concurrency = "${medinsight.kafka.partitions:6}")
+    public void consumeLabRequests(List<ConsumerRecord<String, RequestEvent>> records, Acknowledgment ack,
+            Consumer<?, ?> consumer) {
+        if ("keyed-parallel".equals(processing)) {
+            int completed = dispatcher.dispatch(records, metrics.timed(LISTENER, this::saveOne), router::route,
+                    consumer);
+            log.info("Saved {} of {} lab orders", completed, records.size());
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            // Simple deserialization - assuming message is JSON
-            // In real app, use a DTO. Here mapping directly for simplicity if fields match,
-            // or parsing manually.
+            saveBatch(records);
+        } catch (Exception e) {
+            // Not left to the container's error handler, which gives up after a few attempts and commits past the
+            // poll: seek back to its first record and pause; rows saved before the failure are skipped by eventId
+            log.error("Lab order poll of {} records not handed off, redelivering in {} ms", records.size(),
+                    retryBackoffMs, e);
+            ack.nack(0, Duration.ofMillis(retryBackoffMs));
+            return;
+        }
+        ack.acknowledge();
+        metrics.batch(LISTENER, start);
+    }
 
-            // For this demo, we'll create a dummy order or parse simple JSON
-            // Assuming message: {"dossierId":"...", "consultationId":"...",
-            // "testCode":"..."}
+    // A retried lab request is saved alone, whichever processing mode the main listener runs in
+    @PostConstruct
+    void registerRetryTiers() {
+        retryTiers.register(LabRequestedEvent.TOPIC, "lab-group", RETRY_LISTENER,
+                metrics.timed(RETRY_LISTENER, this::saveOne));
+    }
 
-            LabOrder order = new LabOrder();
-            // Basic parsing or use ObjectMapper if DTO existed.
-            // Let's rely on ObjectMapper to map to a temporary map or class, or directly to
-            // Entity if compatible.
-            // Using a loose mapping for robustness in this restored version.
-            var jsonNode = objectMapper.readTree(message);
+    private void saveOne(ConsumerRecord<String, RequestEvent> record) {
+        List<LabOrder> saved = labOrderService.create(List.of(toOrder(decode(record))));
+        if (saved.isEmpty()) {
+            metrics.duplicate(LISTENER);
+            log.info("Skipping duplicate lab request at {}-{}@{}", record.topic(), record.partition(),
+                    record.offset());
+            return;
+        }
+        publishCreated(saved);
+    }
 
-            order.setDossierId(jsonNode.path("dossierId").asText());
-            order.setConsultationId(jsonNode.path("consultationId").asText());
-            order.setTestCode(jsonNode.path("testCode").asText());
-            order.setStatus("PENDING");
+    private void saveBatch(List<ConsumerRecord<String, RequestEvent>> records) {
+        // Kept aligned with orders so a failed row can be routed with its original record
+        List<ConsumerRecord<String, RequestEvent>> decoded = new ArrayList<>(records.size());
+        List<LabOrder> orders = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, RequestEvent> record : records) {
+            try {
+                orders.add(toOrder(decode(record)));
+                decoded.add(record);
+            } catch (Exception e) {
+                metrics.failed(LISTENER, e);
+                routeOrThrow(record, e);
+            }
+        }
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<LabOrder> saved;
+        try {
+            saved = labOrderService.create(orders);
+        } catch (Exception e) {
+            // One bad row must not hold up the whole poll: retry the batch row by row
+            log.error("Batch insert of {} lab orders failed, falling back to single inserts", orders.size(), e);
+            saveOneByOne(decoded, orders);
+            return;
+        }
+        // Committed: nothing below may send the batch back through the fallback
+        log.info("Saved {} lab orders ({} duplicates skipped)", saved.size(), orders.size() - saved.size());
+        publishCreated(saved);
+        metrics.processed(LISTENER, decoded);
+    }
 
-            labOrderRepository.save(order);
-            log.info("LabOrder saved: {}", order);
+    private void saveOneByOne(List<ConsumerRecord<String, RequestEvent>> records, List<LabOrder> orders) {
+        List<LabOrder> saved = new ArrayList<>(orders.size());
+        List<ConsumerRecord<String, RequestEvent>> savedRecords = new ArrayList<>(orders.size());
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                LabOrder order = orders.get(i);
+                try {
+                    order.setId(null);
+                    saved.addAll(labOrderService.create(List.of(order)));
+                    savedRecords.add(records.get(i));
+                } catch (Exception e) {
+                    log.error("Error processing lab request for dossier {}", order.getDossierId(), e);
+                    metrics.failed(LISTENER, e);
+                    routeOrThrow(records.get(i), e);
+                }
+            }
+        } finally {
+            // Rows saved before a routing failure stay committed; their redelivery is skipped by event id
+            publishCreated(saved);
+            metrics.processed(LISTENER, savedRecords);
+        }
+    }
+
+    // After the insert has committed, so subscribers never see an order they cannot read back
+    private void publishCreated(List<LabOrder> orders) {
+        if (eventHub.hasSubscribers()) {
+            eventHub.publish(orders.stream().map(o -> LabOrderChange.of(LabOrderChange.CREATED, o)).toList());
+        }
+    }
 
+    // If even the retry topic is unreachable the whole poll is nacked and redelivered (see consumeLabRequests)
+    private void routeOrThrow(ConsumerRecord<String, RequestEvent> record, Exception error) {
+        try {
+            router.route(record, error);
         } catch (Exception e) {
-            log.error("Error processing lab request", e);
+            throw new IllegalStateException("Cannot route failed lab request at " + record.topic() + "-"
+                    + record.partition() + "@" + record.offset(), e);
         }
     }
+
+    // An undecodable lab request arrives with a null value
+    private static LabRequestedEvent decode(ConsumerRecord<String, RequestEvent> record) {
+        if (record.value() instanceof LabRequestedEvent event) {
+            return event;
+        }
+        throw new IllegalArgumentException("Undecodable lab request at " + record.topic() + "-"
+                + record.partition() + "@" + record.offset());
+    }
+
+    private static LabOrder toOrder(LabRequestedEvent event) {
+        LabOrder order = new LabOrder();
+        order.setDossierId(event.dossierId());
+        order.setConsultationId(event.consultationId());
+        order.setTestCode(event.testCode());
+        order.setStatus("PENDING");
+        order.setEventId(event.eventId());
+        return order;
+    }
 }
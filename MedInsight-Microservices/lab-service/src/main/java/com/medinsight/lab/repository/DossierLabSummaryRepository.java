@@ -0,0 +1,7 @@
+package com.medinsight.lab.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.medinsight.lab.domain.DossierLabSummary;
+
+public interface DossierLabSummaryRepository extends JpaRepository<DossierLabSummary, String> {
+}
@@ -0,0 +1,10 @@
+package com.medinsight.lab.repository;
+
+// LabOrderSummary plus its decompressed result; only built when a caller asks for results
+public record LabOrderDetail(Long id, String dossierId, String consultationId, String testCode, String status,
+        String result) {
+
+    public static LabOrderDetail of(LabOrderSummary s, String result) {
+        return new LabOrderDetail(s.id(), s.dossierId(), s.consultationId(), s.testCode(), s.status(), result);
+    }
+}
@@ -0,0 +1,5 @@
+package com.medinsight.lab.repository;
+
+// Equality filters for lab-order queries; null means "any"
+public record LabOrderFilter(String dossierId, String consultationId, String status, String testCode) {
+}
@@ -0,0 +1,9 @@
+package com.medinsight.lab.repository;
+
+import java.util.List;
+
+// Filtered keyset queries; implemented by LabOrderQueryRepositoryImpl
+public interface LabOrderQueryRepository {
+
+    List<LabOrderSummary> findSummaries(LabOrderFilter filter, Long after, int limit);
+}
@@ -0,0 +1,53 @@
+package com.medinsight.lab.repository;
+
+import com.medinsight.lab.domain.LabOrder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Only the filters actually given end up in the SQL, so each combination gets a plan on its own
+ * composite index (see LabOrder) instead of one catch-all "(:p is null or col = :p)" plan.
+ */
+@RequiredArgsConstructor
+public class LabOrderQueryRepositoryImpl implements LabOrderQueryRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<LabOrderSummary> findSummaries(LabOrderFilter filter, Long after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<LabOrderSummary> query = cb.createQuery(LabOrderSummary.class);
+        Root<LabOrder> o = query.from(LabOrder.class);
+        query.select(cb.construct(LabOrderSummary.class, o.get("id"), o.get("dossierId"), o.get("consultationId"),
+                o.get("testCode"), o.get("status")));
+        query.where(predicates(cb, o, filter, after)).orderBy(cb.asc(o.get("id")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private static Predicate[] predicates(CriteriaBuilder cb, Root<LabOrder> o, LabOrderFilter filter, Long after) {
+        List<Predicate> predicates = new ArrayList<>(5);
+        if (filter.dossierId() != null) {
+            predicates.add(cb.equal(o.get("dossierId"), filter.dossierId()));
+        }
+        if (filter.consultationId() != null) {
+            predicates.add(cb.equal(o.get("consultationId"), filter.consultationId()));
+        }
+        if (filter.status() != null) {
+            predicates.add(cb.equal(o.get("status"), filter.status()));
+        }
+        if (filter.testCode() != null) {
+            predicates.add(cb.equal(o.get("testCode"), filter.testCode()));
+        }
+        if (after != null) {
+            predicates.add(cb.greaterThan(o.get("id"), after));
+        }
+        return predicates.toArray(Predicate[]::new);
+    }
+}
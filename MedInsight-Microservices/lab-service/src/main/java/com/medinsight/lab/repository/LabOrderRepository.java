@@ -1,7 +1,15 @@
 package com.medinsight.lab.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import com.medinsight.lab.domain.LabOrder;
 
-public interface LabOrderRepository extends JpaRepository<LabOrder, Long> {
+import java.util.Collection;
+import java.util.List;
+
+public interface LabOrderRepository extends JpaRepository<LabOrder, Long>, LabOrderQueryRepository {
+
+    @Query("select o.eventId from LabOrder o where o.eventId in :eventIds")
+    List<String> findStoredEventIds(@Param("eventIds") Collection<String> eventIds);
 }
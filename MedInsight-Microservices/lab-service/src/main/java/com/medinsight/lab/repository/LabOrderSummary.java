@@ -0,0 +1,5 @@
+package com.medinsight.lab.repository;
+
+// Lab order without its result, which can be large; what list queries return unless the result is asked for
+public record LabOrderSummary(Long id, String dossierId, String consultationId, String testCode, String status) {
+}
@@ -0,0 +1,7 @@
+package com.medinsight.lab.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.medinsight.lab.domain.LabResult;
+
+public interface LabResultRepository extends JpaRepository<LabResult, Long> {
+}
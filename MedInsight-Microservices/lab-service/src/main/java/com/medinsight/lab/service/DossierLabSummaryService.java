@@ -0,0 +1,125 @@
+package com.medinsight.lab.service;
+
+import com.medinsight.lab.domain.DossierLabSummary;
+import com.medinsight.lab.domain.LabOrder;
+import com.medinsight.lab.repository.DossierLabSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Total, pending and completed lab orders per dossier, kept in dossier_lab_summary by the consumer's
+ * order batches and the result uploads inside their own transactions. A batch touches many dossiers,
+ * so its deltas go out sorted by dossier id and two batches cannot deadlock on each other's rows.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DossierLabSummaryService implements SmartInitializingSingleton {
+
+    private static final String APPLY_SQL = "insert into dossier_lab_summary "
+            + "(dossier_id, total_orders, pending_orders, completed_orders) values (?, ?, ?, ?) "
+            + "on conflict (dossier_id) do update set "
+            + "total_orders = dossier_lab_summary.total_orders + excluded.total_orders, "
+            + "pending_orders = dossier_lab_summary.pending_orders + excluded.pending_orders, "
+            + "completed_orders = dossier_lab_summary.completed_orders + excluded.completed_orders";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DossierLabSummaryRepository repo;
+    private final TransactionTemplate transactionTemplate;
+
+    // counts: {total, pending, completed}
+    private record Delta(String dossierId, long[] counts) {
+    }
+
+    public DossierLabSummary get(String dossierId) {
+        return repo.findById(dossierId).orElse(new DossierLabSummary(dossierId, 0, 0, 0));
+    }
+
+    // New orders, all PENDING
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(List<LabOrder> orders) {
+        Map<String, long[]> deltas = new TreeMap<>();
+        for (LabOrder o : orders) {
+            if (o.getDossierId() != null) {
+                long[] d = deltas.computeIfAbsent(o.getDossierId(), k -> new long[3]);
+                d[0]++;
+                if ("PENDING".equals(o.getStatus())) {
+                    d[1]++;
+                }
+            }
+        }
+        apply(deltas);
+    }
+
+    // Orders that just left PENDING (LabResultIngestService); their new status is read back in this transaction
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordResulted(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Map<String, long[]> deltas = new TreeMap<>();
+        jdbcTemplate.query("select dossier_id, count(*), count(*) filter (where status = 'COMPLETED') "
+                + "from lab_order where id = any(?) and dossier_id is not null group by dossier_id", rs -> {
+                    deltas.put(rs.getString(1), new long[] { 0, -rs.getLong(2), rs.getLong(3) });
+                }, (Object) orderIds.toArray(Long[]::new));
+        apply(deltas);
+    }
+
+    private void apply(Map<String, long[]> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Delta> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((dossierId, counts) -> rows.add(new Delta(dossierId, counts)));
+        jdbcTemplate.batchUpdate(APPLY_SQL, rows, rows.size(), (ps, d) -> {
+            ps.setString(1, d.dossierId());
+            ps.setLong(2, d.counts()[0]);
+            ps.setLong(3, d.counts()[1]);
+            ps.setLong(4, d.counts()[2]);
+        });
+    }
+
+    // Nightly recount from lab_order; order batches and result chunks wait on the table lock until it commits
+    @Scheduled(cron = "${lab.summary.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        return transactionTemplate.execute(status -> rebuild());
+    }
+
+    // Lab orders stored before this table existed: count them before the lab.requests listener starts
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (repo.count() == 0 && Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("select exists (select 1 from lab_order)", Boolean.class))) {
+            reconcile();
+        }
+    }
+
+    private int rebuild() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("lock table lab_order in share mode");
+        int dossiers = jdbcTemplate.update("insert into dossier_lab_summary "
+                + "(dossier_id, total_orders, pending_orders, completed_orders) "
+                + "select dossier_id, count(*), count(*) filter (where status = 'PENDING'), "
+                + "count(*) filter (where status = 'COMPLETED') from lab_order where dossier_id is not null "
+                + "group by dossier_id "
+                + "on conflict (dossier_id) do update set total_orders = excluded.total_orders, "
+                + "pending_orders = excluded.pending_orders, completed_orders = excluded.completed_orders");
+        int removed = jdbcTemplate.update("delete from dossier_lab_summary s where not exists "
+                + "(select 1 from lab_order o where o.dossier_id = s.dossier_id)");
+        log.info("Dossier lab summaries rebuilt: {} dossiers, {} stale rows removed in {} ms", dossiers, removed,
+                System.currentTimeMillis() - start);
+        return dossiers;
+    }
+}
@@ -0,0 +1,5 @@
+package com.medinsight.lab.service;
+
+// Running totals after each chunk; unmatched = unknown id or order no longer PENDING, rejected = malformed or failed row
+public record IngestProgress(int chunk, long received, long updated, long unmatched, long rejected, boolean done) {
+}
@@ -0,0 +1,16 @@
+package com.medinsight.lab.service;
+
+import com.medinsight.lab.domain.LabOrder;
+
+// What subscribers are pushed; like LabOrderSummary it leaves out the (possibly large) result
+public record LabOrderChange(String type, Long id, String dossierId, String consultationId, String testCode,
+        String status) {
+
+    public static final String CREATED = "created";
+    public static final String RESULTED = "resulted";
+
+    public static LabOrderChange of(String type, LabOrder order) {
+        return new LabOrderChange(type, order.getId(), order.getDossierId(), order.getConsultationId(),
+                order.getTestCode(), order.getStatus());
+    }
+}
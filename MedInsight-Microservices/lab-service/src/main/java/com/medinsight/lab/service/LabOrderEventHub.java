@@ -0,0 +1,148 @@
+package com.medinsight.lab.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Fan-out of lab-order changes to SSE subscribers. Publishers never block: each subscriber has a
+ * bounded buffer drained by its own virtual thread, and a subscriber whose buffer is full is
+ * dropped (its stream ends with a "dropped" event) rather than slowing the consumer down. Clients
+ * reconnect and catch up through GET /api/lab-orders.
+ */
+@Component
+@Slf4j
+public class LabOrderEventHub {
+
+    private static final LabOrderChange CLOSE = new LabOrderChange(null, null, null, null, null, null);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${lab.events.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${lab.events.max-subscribers:500}")
+    private int maxSubscribers;
+
+    @Value("${lab.events.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    private final class Subscriber {
+        final String dossierId;
+        final String status;
+        final BlockingQueue<LabOrderChange> buffer = new ArrayBlockingQueue<>(bufferSize);
+        final SseEmitter emitter = new SseEmitter(-1L);
+        volatile boolean dropped;
+
+        Subscriber(String dossierId, String status) {
+            this.dossierId = dossierId;
+            this.status = status;
+        }
+
+        boolean matches(LabOrderChange change) {
+            return (dossierId == null || dossierId.equals(change.dossierId()))
+                    && (status == null || status.equals(change.status()));
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    // null when the subscriber limit is reached
+    public SseEmitter subscribe(String dossierId, String status) {
+        if (subscribers.size() >= maxSubscribers) {
+            return null;
+        }
+        Subscriber s = new Subscriber(dossierId, status);
+        s.emitter.onCompletion(() -> close(s));
+        s.emitter.onTimeout(() -> close(s));
+        s.emitter.onError(e -> close(s));
+        subscribers.add(s);
+        executor.submit(() -> drain(s));
+        return s.emitter;
+    }
+
+    public void publish(List<LabOrderChange> changes) {
+        for (Subscriber s : subscribers) {
+            for (LabOrderChange change : changes) {
+                if (s.matches(change) && !s.buffer.offer(change)) {
+                    drop(s);
+                    break;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(s -> s.emitter.complete());
+        executor.shutdownNow();
+    }
+
+    private void drain(Subscriber s) {
+        try {
+            while (true) {
+                LabOrderChange change = s.buffer.poll(heartbeatMs, TimeUnit.MILLISECONDS);
+                if (change == CLOSE) {
+                    break;
+                }
+                if (change == null) {
+                    // Keeps proxies from idling the stream out and finds clients that went away
+                    s.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    s.emitter.send(SseEmitter.event().name(change.type()).id(String.valueOf(change.id()))
+                            .data(change));
+                }
+            }
+            if (s.dropped) {
+                s.emitter.send(SseEmitter.event().name("dropped")
+                        .data("Subscriber fell more than " + bufferSize + " changes behind"));
+            }
+            s.emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Client disconnected
+            s.emitter.completeWithError(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscribers.remove(s);
+        }
+    }
+
+    // Slow subscriber: stop feeding it; its drain thread flushes the buffer, says why and ends the stream
+    private void drop(Subscriber s) {
+        if (subscribers.remove(s)) {
+            s.dropped = true;
+            log.warn("Dropping lab-order subscriber (dossierId={}, status={}): buffer of {} full", s.dossierId,
+                    s.status, bufferSize);
+            wake(s);
+        }
+    }
+
+    private void close(Subscriber s) {
+        if (subscribers.remove(s)) {
+            wake(s);
+        }
+    }
+
+    // The buffer may be full, so make room for the close marker
+    private static void wake(Subscriber s) {
+        while (!s.buffer.offer(CLOSE)) {
+            s.buffer.poll();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.medinsight.lab.service;
+
+import com.medinsight.lab.domain.LabOrder;
+import com.medinsight.lab.repository.LabOrderRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class LabOrderService {
+
+    private final LabOrderRepository labOrderRepository;
+    private final DossierLabSummaryService summaries;
+
+    // The orders and their dossiers' counters commit together. Orders whose event is already stored
+    // (a redelivered record) are skipped, so only the newly saved ones are returned.
+    @Transactional
+    public List<LabOrder> create(List<LabOrder> orders) {
+        List<LabOrder> saved = labOrderRepository.saveAll(withoutStoredEvents(orders));
+        summaries.recordCreated(saved);
+        return saved;
+    }
+
+    private List<LabOrder> withoutStoredEvents(List<LabOrder> orders) {
+        List<String> eventIds = orders.stream().map(LabOrder::getEventId).filter(Objects::nonNull).toList();
+        if (eventIds.isEmpty()) {
+            return orders;
+        }
+        Set<String> seen = new HashSet<>(labOrderRepository.findStoredEventIds(eventIds));
+        List<LabOrder> fresh = new ArrayList<>(orders.size());
+        for (LabOrder order : orders) {
+            if (order.getEventId() == null || seen.add(order.getEventId())) {
+                fresh.add(order);
+            }
+        }
+        return fresh;
+    }
+}
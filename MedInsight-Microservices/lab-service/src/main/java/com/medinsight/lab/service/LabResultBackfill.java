@@ -0,0 +1,73 @@
+package com.medinsight.lab.service;
+
+import com.medinsight.lab.domain.LabResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/*
+ * One-off move of results still stored in the old lab_order.result column into lab_result,
+ * compressed, 500 rows per transaction; drops the column when done. Hibernate's schema update never
+ * drops columns, so this is what retires it. Safe to run from several instances at once.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class LabResultBackfill {
+
+    private static final int BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private record LegacyResult(long id, String text) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Integer legacyColumns = jdbcTemplate.queryForObject("select count(*) from information_schema.columns "
+                + "where table_name = 'lab_order' and column_name = 'result'", Integer.class);
+        if (legacyColumns == null || legacyColumns == 0) {
+            return;
+        }
+        long moved = 0;
+        try {
+            int n;
+            do {
+                n = transactionTemplate.execute(status -> moveBatch());
+                moved += n;
+            } while (n == BATCH);
+            jdbcTemplate.execute("alter table lab_order drop column if exists result");
+            log.info("Moved {} lab results out of lab_order", moved);
+        } catch (Exception e) {
+            // Typically another instance finished first and dropped the column; otherwise the next start resumes
+            log.warn("Lab result backfill stopped after {} rows: {}", moved, e.getMessage());
+        }
+    }
+
+    private int moveBatch() {
+        List<LegacyResult> rows = jdbcTemplate.query("select id, result from lab_order where result is not null "
+                + "order by id limit " + BATCH + " for update",
+                (rs, i) -> new LegacyResult(rs.getLong(1), rs.getString(2)));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<LabResult> results = rows.stream().map(r -> LabResultStore.compress(r.id(), r.text())).toList();
+        jdbcTemplate.batchUpdate("insert into lab_result (lab_order_id, encoding, original_size, content) "
+                + "values (?, ?, ?, ?) on conflict (lab_order_id) do nothing", results, results.size(), (ps, r) -> {
+                    ps.setLong(1, r.getLabOrderId());
+                    ps.setString(2, r.getEncoding());
+                    ps.setInt(3, r.getOriginalSize());
+                    ps.setBytes(4, r.getContent());
+                });
+        jdbcTemplate.update("update lab_order set result = null where id = any(?)",
+                (Object) rows.stream().map(LegacyResult::id).toArray(Long[]::new));
+        return rows.size();
+    }
+}
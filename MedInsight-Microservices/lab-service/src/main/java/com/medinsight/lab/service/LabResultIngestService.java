@@ -0,0 +1,405 @@
+package com.medinsight.lab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medinsight.lab.domain.LabResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+ * Applies analyzer result files (NDJSON or CSV) to PENDING lab orders. The upload is parsed one
+ * record at a time and written in JDBC batches of lab.results.chunk-size, one transaction per
+ * chunk, so memory stays flat whatever the file size. A failed row never fails the upload: it is
+ * counted as rejected and reported with the chunk. A record longer than lab.results.record-max-chars
+ * is skipped to its end without being buffered and rejected as well.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class LabResultIngestService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private record ResultLine(Long id, String result, String status) {
+    }
+
+    private static final String DEFAULT_STATUS = "COMPLETED";
+
+    // Final statuses a result may set; anything else (typos, PENDING) is rejected, not written
+    private static final Set<String> RESULT_STATUSES = Set.of("COMPLETED", "CANCELLED");
+
+    // Only PENDING orders move; re-uploading a file is therefore harmless
+    private static final String UPDATE_SQL = "update lab_order set status = ? where id = ? and status = 'PENDING'";
+
+    private static final String INSERT_RESULT_SQL = "insert into lab_result (lab_order_id, encoding, original_size, "
+            + "content) values (?, ?, ?, ?) on conflict (lab_order_id) do update set encoding = excluded.encoding, "
+            + "original_size = excluded.original_size, content = excluded.content";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final LabOrderEventHub eventHub;
+    private final DossierLabSummaryService summaries;
+
+    @Value("${lab.results.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${lab.results.chunk-max-chars:8388608}")
+    private long chunkMaxChars;
+
+    @Value("${lab.results.record-max-chars:4194304}")
+    private int recordMaxChars;
+
+    public IngestProgress ingest(InputStream in, Format format, Consumer<IngestProgress> onChunk)
+            throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        Totals totals = new Totals();
+        List<ResultLine> chunk = new ArrayList<>(chunkSize);
+
+        RecordSource source = format == Format.CSV ? new CsvSource(reader, recordMaxChars) : new NdjsonSource(reader);
+        ResultLine line;
+        long chunkChars = 0;
+        while ((line = source.next(totals)) != null) {
+            chunk.add(line);
+            chunkChars += line.result().length();
+            // Large results (imaging, genomics) close a chunk early so a chunk stays around chunk-max-chars
+            if (chunk.size() == chunkSize || chunkChars >= chunkMaxChars) {
+                onChunk.accept(apply(chunk, totals, false));
+                chunk.clear();
+                chunkChars = 0;
+            }
+        }
+        IngestProgress last = apply(chunk, totals, true);
+        onChunk.accept(last);
+        return last;
+    }
+
+    private IngestProgress apply(List<ResultLine> chunk, Totals totals, boolean done) {
+        if (!chunk.isEmpty()) {
+            totals.chunk++;
+            List<Long> updated;
+            try {
+                updated = transactionTemplate.execute(status -> applyChunk(chunk));
+            } catch (Exception e) {
+                // One bad row must not lose the chunk: retry it row by row
+                log.warn("Result chunk {} failed, falling back to single updates", totals.chunk, e);
+                applyOneByOne(chunk, totals);
+                return progress(totals, done);
+            }
+            // Committed: counted once and published outside the fallback, which would apply the chunk again
+            totals.updated += updated.size();
+            totals.unmatched += chunk.size() - updated.size();
+            publishResulted(updated);
+        }
+        return progress(totals, done);
+    }
+
+    private static IngestProgress progress(Totals totals, boolean done) {
+        return new IngestProgress(totals.chunk, totals.received, totals.updated, totals.unmatched, totals.rejected,
+                done);
+    }
+
+    // Status updates and compressed results in two JDBC batches; only orders that actually moved get a result
+    // and leave their dossier's pending count
+    private List<Long> applyChunk(List<ResultLine> lines) {
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, lines, lines.size(), (ps, l) -> {
+            ps.setString(1, l.status());
+            ps.setLong(2, l.id());
+        })[0];
+        List<LabResult> results = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                results.add(LabResultStore.compress(lines.get(i).id(), lines.get(i).result()));
+            }
+        }
+        if (!results.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_RESULT_SQL, results, results.size(), (ps, r) -> {
+                ps.setLong(1, r.getLabOrderId());
+                ps.setString(2, r.getEncoding());
+                ps.setInt(3, r.getOriginalSize());
+                ps.setBytes(4, r.getContent());
+            });
+        }
+        List<Long> updated = results.stream().map(LabResult::getLabOrderId).toList();
+        summaries.recordResulted(updated);
+        return updated;
+    }
+
+    private void applyOneByOne(List<ResultLine> chunk, Totals totals) {
+        List<Long> updated = new ArrayList<>(chunk.size());
+        for (ResultLine l : chunk) {
+            try {
+                if (!transactionTemplate.execute(status -> applyChunk(List.of(l))).isEmpty()) {
+                    updated.add(l.id());
+                    totals.updated++;
+                } else {
+                    totals.unmatched++;
+                }
+            } catch (Exception e) {
+                log.error("Cannot apply result to lab order {}", l.id(), e);
+                totals.rejected++;
+            }
+        }
+        publishResulted(updated);
+    }
+
+    // Subscribers filter on dossierId, which the upload does not carry: read it back, once per chunk
+    private void publishResulted(List<Long> ids) {
+        if (ids.isEmpty() || !eventHub.hasSubscribers()) {
+            return;
+        }
+        List<LabOrderChange> changes = jdbcTemplate.query(
+                "select id, dossier_id, consultation_id, test_code, status from lab_order where id = any(?)",
+                (rs, n) -> new LabOrderChange(LabOrderChange.RESULTED, rs.getLong(1), rs.getString(2),
+                        rs.getString(3), rs.getString(4), rs.getString(5)),
+                (Object) ids.toArray(Long[]::new));
+        eventHub.publish(changes);
+    }
+
+    // Counts every record read and rejects the ones that cannot become an update
+    private static ResultLine validate(Long id, String result, String status, Totals totals) {
+        totals.received++;
+        String target = status == null || status.isBlank()
+                ? DEFAULT_STATUS
+                : status.trim().toUpperCase(Locale.ROOT);
+        if (id == null || result == null || !RESULT_STATUSES.contains(target)) {
+            totals.rejected++;
+            return null;
+        }
+        return new ResultLine(id, result, target);
+    }
+
+    // A record that cannot even be read as one: malformed JSON or longer than recordMaxChars
+    private static void reject(Totals totals) {
+        totals.received++;
+        totals.rejected++;
+    }
+
+    private static final class Totals {
+        int chunk;
+        long received;
+        long updated;
+        long unmatched;
+        long rejected;
+    }
+
+    private interface RecordSource {
+        // Next valid record, or null at end of input
+        ResultLine next(Totals totals) throws IOException;
+    }
+
+    // One JSON object per line: {"id":42,"result":"...","status":"COMPLETED"}; blank lines are ignored
+    private final class NdjsonSource implements RecordSource {
+
+        private final BufferedReader reader;
+        private boolean oversized;
+
+        NdjsonSource(Reader reader) {
+            this.reader = (BufferedReader) reader;
+        }
+
+        @Override
+        public ResultLine next(Totals totals) throws IOException {
+            String text;
+            while ((text = readLine()) != null) {
+                if (oversized) {
+                    reject(totals);
+                    continue;
+                }
+                if (text.isBlank()) {
+                    continue;
+                }
+                ResultLine line;
+                try {
+                    ResultLine raw = objectMapper.readValue(text, ResultLine.class);
+                    line = validate(raw.id(), raw.result(), raw.status(), totals);
+                } catch (IOException e) {
+                    reject(totals);
+                    continue;
+                }
+                if (line != null) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        // readLine without its unbounded buffer: past recordMaxChars the rest of the line is read and dropped
+        private String readLine() throws IOException {
+            StringBuilder text = new StringBuilder();
+            oversized = false;
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            for (; c != -1 && c != '\n'; c = reader.read()) {
+                if (oversized) {
+                    continue;
+                }
+                if (text.length() == recordMaxChars) {
+                    oversized = true;
+                    text.setLength(0);
+                    continue;
+                }
+                text.append((char) c);
+            }
+            if (oversized) {
+                return "";
+            }
+            int end = text.length();
+            return end > 0 && text.charAt(end - 1) == '\r' ? text.substring(0, end - 1) : text.toString();
+        }
+    }
+
+    /*
+     * RFC 4180 CSV: quoted fields may contain commas, quotes ("") and line breaks. Columns are
+     * id,result[,status]; a first row whose first field is "id" is a header and may reorder them.
+     */
+    private static final class CsvSource implements RecordSource {
+
+        private final Reader reader;
+        private final int recordMaxChars;
+        private int idColumn = 0;
+        private int resultColumn = 1;
+        private int statusColumn = 2;
+        private boolean first = true;
+        private boolean eof;
+        private boolean oversized;
+
+        CsvSource(Reader reader, int recordMaxChars) {
+            this.reader = reader;
+            this.recordMaxChars = recordMaxChars;
+        }
+
+        @Override
+        public ResultLine next(Totals totals) throws IOException {
+            List<String> fields;
+            while ((fields = readRecord()) != null) {
+                if (oversized) {
+                    first = false;
+                    reject(totals);
+                    continue;
+                }
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                if (first) {
+                    first = false;
+                    if ("id".equalsIgnoreCase(fields.get(0).trim())) {
+                        header(fields);
+                        continue;
+                    }
+                }
+                Long id;
+                try {
+                    id = Long.valueOf(field(fields, idColumn).trim());
+                } catch (RuntimeException e) {
+                    id = null;
+                }
+                ResultLine line = validate(id, field(fields, resultColumn), field(fields, statusColumn), totals);
+                if (line != null) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        private void header(List<String> names) {
+            idColumn = resultColumn = statusColumn = -1;
+            for (int i = 0; i < names.size(); i++) {
+                switch (names.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "id" -> idColumn = i;
+                    case "result" -> resultColumn = i;
+                    case "status" -> statusColumn = i;
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        private static String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+
+        private List<String> readRecord() throws IOException {
+            if (eof) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>(3);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean fieldStart = true;
+            oversized = false;
+            // Past the cap the record is still parsed to its end, so the next one starts in the right place
+            long chars = 0;
+            int c;
+            while ((c = reader.read()) != -1) {
+                if (!oversized && ++chars > recordMaxChars) {
+                    oversized = true;
+                    fields.clear();
+                    field = null;
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            append(field, '"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        append(field, c);
+                    }
+                } else if (c == '"' && fieldStart) {
+                    quoted = true;
+                    fieldStart = false;
+                } else if (c == ',') {
+                    fieldStart = true;
+                    if (field != null) {
+                        fields.add(field.toString());
+                        field.setLength(0);
+                    }
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    fieldStart = false;
+                    append(field, c);
+                }
+            }
+            if (c == -1) {
+                eof = true;
+                if (chars == 0) {
+                    return null;
+                }
+            }
+            if (field != null) {
+                fields.add(field.toString());
+            }
+            return fields;
+        }
+
+        private static void append(StringBuilder field, int c) {
+            if (field != null) {
+                field.append((char) c);
+            }
+        }
+    }
+}
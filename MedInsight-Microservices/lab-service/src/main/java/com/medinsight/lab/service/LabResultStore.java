@@ -0,0 +1,67 @@
+package com.medinsight.lab.service;
+
+import com.medinsight.lab.domain.LabResult;
+import com.medinsight.lab.repository.LabOrderDetail;
+import com.medinsight.lab.repository.LabOrderSummary;
+import com.medinsight.lab.repository.LabResultRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Compressed, out-of-row lab results (table lab_result); see LabResult
+@Service
+@RequiredArgsConstructor
+public class LabResultStore {
+
+    private final LabResultRepository repo;
+
+    public static LabResult compress(Long labOrderId, String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new LabResult(labOrderId, LabResult.GZIP, raw.length, out.toByteArray());
+    }
+
+    // Uncompressed content
+    public static InputStream open(LabResult result) throws IOException {
+        InputStream in = new ByteArrayInputStream(result.getContent());
+        return LabResult.GZIP.equals(result.getEncoding()) ? new GZIPInputStream(in) : in;
+    }
+
+    public static String text(LabResult result) {
+        try (InputStream in = open(result)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Optional<LabResult> find(Long labOrderId) {
+        return repo.findById(labOrderId);
+    }
+
+    // One query for the whole page; orders without a result get null
+    public List<LabOrderDetail> withResults(List<LabOrderSummary> orders) {
+        Map<Long, String> texts = new HashMap<>(orders.size() * 2);
+        for (LabResult r : repo.findAllById(orders.stream().map(LabOrderSummary::id).toList())) {
+            texts.put(r.getLabOrderId(), text(r));
+        }
+        return orders.stream().map(o -> LabOrderDetail.of(o, texts.get(o.id()))).toList();
+    }
+}
@@ -1,14 +1,36 @@
 package com.medinsight.lab.web;
 
 import org.springframework.web.bind.annotation.*;
-import com.medinsight.lab.domain.LabOrder;
+import com.medinsight.lab.domain.LabResult;
+import com.medinsight.lab.repository.LabOrderFilter;
 import com.medinsight.lab.repository.LabOrderRepository;
+import com.medinsight.lab.repository.LabOrderSummary;
+import com.medinsight.lab.service.DossierLabSummaryService;
+import com.medinsight.lab.service.LabOrderEventHub;
+import com.medinsight.lab.service.LabResultIngestService;
+import com.medinsight.lab.service.LabResultStore;
+import com.medinsight.messaging.consumer.DeadLetterReplayer;
+import com.medinsight.messaging.consumer.RetryRouter;
+import com.medinsight.messaging.contract.LabRequestedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import com.medinsight.lab.security.UserContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/lab-orders")
@@ -16,13 +38,66 @@ import org.springframework.http.ResponseEntity;
 public class LabOrderController {
 
     private final LabOrderRepository repo;
+    private final RetryRouter retryRouter;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final LabResultIngestService resultIngestService;
+    private final LabOrderEventHub eventHub;
+    private final LabResultStore resultStore;
+    private final ObjectMapper objectMapper;
+    private final DossierLabSummaryService summaries;
 
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Keyset pagination: pass the previous page's nextCursor as "after". Filters combine with AND.
     @GetMapping
-    public ResponseEntity<?> getAll() {
+    public ResponseEntity<?> search(@RequestParam(required = false) String dossierId,
+            @RequestParam(required = false) String consultationId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String testCode,
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(defaultValue = "false") boolean includeResult) {
+        if (!UserContext.getCurrent().hasRole("lab:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:read");
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LabOrderFilter filter = new LabOrderFilter(dossierId, consultationId, status, testCode);
+        List<LabOrderSummary> items = repo.findSummaries(filter, after, size);
+        Long nextCursor = items.size() < size ? null : items.get(items.size() - 1).id();
+        return ResponseEntity.ok(new LabOrderPage(includeResult ? resultStore.withResults(items) : items, nextCursor));
+    }
+
+    // Push instead of polling: "created" and "resulted" events for the orders matching the filters
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> subscribe(@RequestParam(required = false) String dossierId,
+            @RequestParam(required = false) String status) {
+        if (!UserContext.getCurrent().hasRole("lab:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:read");
+        }
+        SseEmitter emitter = eventHub.subscribe(dossierId, status);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many subscribers, retry later");
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    // Order counts of one dossier, read from the incrementally maintained dossier_lab_summary
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary(@RequestParam String dossierId) {
         if (!UserContext.getCurrent().hasRole("lab:read")) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:read");
         }
-        return ResponseEntity.ok(repo.findAll());
+        return ResponseEntity.ok(summaries.get(dossierId));
+    }
+
+    // Rebuilds every dossier summary from lab_order (also runs nightly, lab.summary.reconcile-cron)
+    @PostMapping("/summary/reconcile")
+    public ResponseEntity<?> reconcileSummaries() {
+        if (!UserContext.getCurrent().hasRole("lab:admin")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:admin");
+        }
+        return ResponseEntity.ok(Map.of("dossiers", summaries.reconcile()));
     }
 
     @GetMapping("/{id}")
@@ -32,4 +107,75 @@ public class LabOrderController {
         }
         return ResponseEntity.ok(repo.findById(id).orElse(null));
     }
+
+    // Streams the result; gzip-capable clients get the stored bytes as they are, others get them inflated
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> getResult(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!UserContext.getCurrent().hasRole("lab:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:read");
+        }
+        LabResult result = resultStore.find(id).orElse(null);
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        MediaType textUtf8 = new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8);
+        if (LabResult.GZIP.equals(result.getEncoding()) && acceptEncoding != null
+                && acceptEncoding.toLowerCase(Locale.ROOT).contains(LabResult.GZIP)) {
+            StreamingResponseBody body = out -> out.write(result.getContent());
+            return ResponseEntity.ok()
+                    .contentType(textUtf8)
+                    .header(HttpHeaders.CONTENT_ENCODING, LabResult.GZIP)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .contentLength(result.getContent().length)
+                    .body(body);
+        }
+        StreamingResponseBody body = out -> {
+            try (InputStream in = LabResultStore.open(result)) {
+                in.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(textUtf8)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .contentLength(result.getOriginalSize())
+                .body(body);
+    }
+
+    // Republishes up to max dead letters to the request topic, e.g. once the cause of the failures is fixed
+    @PostMapping("/dlq/replay")
+    public ResponseEntity<?> replayDeadLetters(@RequestParam(defaultValue = "1000") int max) throws Exception {
+        if (!UserContext.getCurrent().hasRole("lab:admin")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:admin");
+        }
+        int replayed = deadLetterReplayer.replay(retryRouter.dltTopic(LabRequestedEvent.TOPIC), Math.max(1, max));
+        return ResponseEntity.ok(Map.of("replayed", replayed));
+    }
+
+    // Analyzer upload (NDJSON or CSV); answers with one NDJSON progress line per applied chunk
+    @PostMapping(value = "/results", consumes = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" },
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> ingestResults(HttpServletRequest request,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) {
+        if (!UserContext.getCurrent().hasRole("lab:write")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role lab:write");
+        }
+        LabResultIngestService.Format format = contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? LabResultIngestService.Format.NDJSON
+                : LabResultIngestService.Format.CSV;
+        // The upload is read while the response streams, so neither side is ever held in memory
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                resultIngestService.ingest(request.getInputStream(), format, progress -> {
+                    try {
+                        writer.write(progress);
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
 }
@@ -0,0 +1,7 @@
+package com.medinsight.lab.web;
+
+import java.util.List;
+
+// One keyset page (LabOrderSummary, or LabOrderDetail when includeResult=true); nextCursor is null on the last page
+public record LabOrderPage(List<?> items, Long nextCursor) {
+}
@@ -0,0 +1,2 @@
+-- idx_lab_order_dossier_id is covered by idx_lab_order_dossier_status (dossier_id leads it). Idempotent.
+DROP INDEX IF EXISTS idx_lab_order_dossier_id;
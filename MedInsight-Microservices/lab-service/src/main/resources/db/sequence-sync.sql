@@ -0,0 +1,6 @@
+-- Runs after Hibernate's schema update. Moves lab_order_seq past ids handed out by the former IDENTITY column
+-- (pooled optimizer: the next block starts at sequence value - 50 + 1). Only fires while the sequence is behind
+-- the table: once it is ahead, other replicas may hold partly used blocks below last_value, and moving it again
+-- on every startup could hand out ids overlapping theirs.
+SELECT setval('lab_order_seq', (SELECT MAX(id) FROM lab_order) + 50)
+WHERE (SELECT last_value FROM lab_order_seq) <= (SELECT COALESCE(MAX(id), 0) FROM lab_order);
@@ -0,0 +1,92 @@
+package com.medinsight.lab.event;
+
+import com.medinsight.lab.domain.LabOrder;
+import com.medinsight.lab.service.LabOrderEventHub;
+import com.medinsight.lab.service.LabOrderService;
+import com.medinsight.messaging.consumer.ConsumerMetrics;
+import com.medinsight.messaging.consumer.KeyOrderedDispatcher;
+import com.medinsight.messaging.consumer.RetryRouter;
+import com.medinsight.messaging.consumer.RetryTierListeners;
+import com.medinsight.messaging.contract.LabRequestedEvent;
+import com.medinsight.messaging.contract.RequestEvent;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LabOrderConsumerTest {
+
+    private final LabOrderService service = mock(LabOrderService.class);
+    private final RetryRouter router = mock(RetryRouter.class);
+    private final Acknowledgment ack = mock(Acknowledgment.class);
+    private final LabOrderConsumer consumer = new LabOrderConsumer(service, mock(KeyOrderedDispatcher.class), router,
+            mock(RetryTierListeners.class), mock(LabOrderEventHub.class), mock(ConsumerMetrics.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(consumer, "processing", "batch");
+        ReflectionTestUtils.setField(consumer, "retryBackoffMs", 1000L);
+        // The batch insert fails; row by row only "BAD" does
+        when(service.create(anyList())).thenAnswer(call -> {
+            List<LabOrder> orders = call.getArgument(0);
+            if (orders.size() > 1 || orders.get(0).getTestCode().equals("BAD")) {
+                throw new IllegalStateException("insert failed");
+            }
+            return orders;
+        });
+    }
+
+    @Test
+    void failedRowIsRoutedAndThePollAcknowledged() throws Exception {
+        List<ConsumerRecord<String, RequestEvent>> records = List.of(record(0, "GLY"), record(1, "BAD"));
+
+        consumer.consumeLabRequests(records, ack, mock(Consumer.class));
+
+        verify(router).route(eq(records.get(1)), any());
+        verify(ack).acknowledge();
+        verify(ack, never()).nack(any(Integer.class), any(Duration.class));
+    }
+
+    @Test
+    void pollIsNackedFromItsFirstRecordWhenTheRetryTopicIsUnreachable() throws Exception {
+        List<ConsumerRecord<String, RequestEvent>> records = List.of(record(0, "GLY"), record(1, "BAD"));
+        doThrow(new IllegalStateException("retry topic unreachable")).when(router).route(any(), any());
+
+        consumer.consumeLabRequests(records, ack, mock(Consumer.class));
+
+        verify(ack).nack(0, Duration.ofMillis(1000));
+        verify(ack, never()).acknowledge();
+    }
+
+    @Test
+    void undecodableRecordIsRoutedWithoutTouchingTheBatch() throws Exception {
+        ConsumerRecord<String, RequestEvent> undecodable =
+                new ConsumerRecord<>(LabRequestedEvent.TOPIC, 0, 2, "d-1", null);
+        List<ConsumerRecord<String, RequestEvent>> records = List.of(record(0, "GLY"), undecodable);
+
+        consumer.consumeLabRequests(records, ack, mock(Consumer.class));
+
+        verify(router).route(eq(undecodable), any());
+        verify(service).create(anyList());
+        verify(ack).acknowledge();
+    }
+
+    private static ConsumerRecord<String, RequestEvent> record(long offset, String testCode) {
+        return new ConsumerRecord<>(LabRequestedEvent.TOPIC, 0, offset, "d-1",
+                new LabRequestedEvent("d-1", "c-1", testCode, "e-" + offset));
+    }
+}
@@ -0,0 +1,144 @@
+package com.medinsight.lab.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LabOrderEventHubTest {
+
+    private final LabOrderEventHub hub = new LabOrderEventHub();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(hub, "bufferSize", 4);
+        ReflectionTestUtils.setField(hub, "maxSubscribers", 2);
+        ReflectionTestUtils.setField(hub, "heartbeatMs", 60000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.shutdown();
+    }
+
+    @Test
+    void subscriberOnlyReceivesChangesMatchingItsFilters() throws Exception {
+        Stream stream = Stream.of(hub.subscribe("d-1", "PENDING"));
+
+        hub.publish(List.of(change(1, "d-1", "PENDING"), change(2, "d-2", "PENDING"),
+                change(3, "d-1", "COMPLETED"), change(4, "d-1", "PENDING")));
+
+        await(() -> stream.changes().size() == 2);
+        assertThat(stream.changes()).extracting(LabOrderChange::id).containsExactly(1L, 4L);
+    }
+
+    @Test
+    void slowSubscriberIsDroppedWithoutBlockingThePublisher() throws Exception {
+        SseEmitter emitter = hub.subscribe(null, null);
+        Stream stream = Stream.of(emitter);
+
+        // Holding the emitter's monitor stalls the drain thread in its first send
+        synchronized (emitter) {
+            hub.publish(IntStream.rangeClosed(1, 10).mapToObj(i -> change(i, "d-1", "PENDING")).toList());
+            assertThat(hub.hasSubscribers()).isFalse();
+        }
+
+        await(stream::completed);
+        assertThat(stream.data()).anySatisfy(d -> assertThat(d).asString().startsWith("Subscriber fell more than 4"));
+        assertThat(stream.changes().size()).isLessThan(10);
+    }
+
+    @Test
+    void subscriberWhoseClientWentAwayIsRemoved() throws Exception {
+        SseEmitter emitter = hub.subscribe("d-1", null);
+        Stream.failing(emitter);
+
+        hub.publish(List.of(change(1, "d-1", "PENDING")));
+
+        await(() -> !hub.hasSubscribers());
+    }
+
+    @Test
+    void subscribersBeyondTheLimitAreRefused() {
+        assertThat(hub.subscribe(null, null)).isNotNull();
+        assertThat(hub.subscribe("d-1", null)).isNotNull();
+
+        assertThat(hub.subscribe("d-2", null)).isNull();
+    }
+
+    private static LabOrderChange change(long id, String dossierId, String status) {
+        return new LabOrderChange(LabOrderChange.CREATED, id, dossierId, "c-1", "GLY", status);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /*
+     * What the client would read: the emitter is attached to a recording handler, as the MVC
+     * return-value handler would attach it to the response. That handler type is package-private.
+     */
+    private record Stream(List<Object> data, AtomicBoolean done) {
+
+        static Stream of(SseEmitter emitter) throws Exception {
+            return attach(emitter, false);
+        }
+
+        static Stream failing(SseEmitter emitter) throws Exception {
+            return attach(emitter, true);
+        }
+
+        private static Stream attach(SseEmitter emitter, boolean failSends) throws Exception {
+            Stream stream = new Stream(new CopyOnWriteArrayList<>(), new AtomicBoolean());
+            Class<?> type = Class.forName(ResponseBodyEmitter.class.getName() + "$Handler");
+            Object handler = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "send" -> {
+                                if (failSends) {
+                                    throw new IOException("Broken pipe");
+                                }
+                                if (args[0] instanceof Set<?> items) {
+                                    items.forEach(i -> stream.data().add(
+                                            ((ResponseBodyEmitter.DataWithMediaType) i).getData()));
+                                } else {
+                                    stream.data().add(args[0]);
+                                }
+                            }
+                            case "complete", "completeWithError" -> stream.done().set(true);
+                            default -> {
+                            }
+                        }
+                        return null;
+                    });
+            ReflectionTestUtils.invokeMethod(emitter, "initialize", handler);
+            return stream;
+        }
+
+        List<LabOrderChange> changes() {
+            return data.stream().filter(LabOrderChange.class::isInstance).map(LabOrderChange.class::cast).toList();
+        }
+
+        boolean completed() {
+            return done.get();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.medinsight.lab.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medinsight.lab.domain.LabResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LabResultIngestServiceTest {
+
+    private static final long BAD_ID = 13;
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final DossierLabSummaryService summaries = mock(DossierLabSummaryService.class);
+    private final LabResultIngestService service = new LabResultIngestService(jdbcTemplate,
+            new TransactionTemplate(transactionManager), new ObjectMapper(), mock(LabOrderEventHub.class),
+            summaries);
+
+    // Committed and rolled-back writes alike, in call order: "id:status" and id -> result text
+    private final List<String> statusUpdates = new ArrayList<>();
+    private final Map<Long, String> results = new LinkedHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ReflectionTestUtils.setField(service, "chunkSize", 1000);
+        ReflectionTestUtils.setField(service, "chunkMaxChars", 8388608L);
+        ReflectionTestUtils.setField(service, "recordMaxChars", 4194304);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        // Every id exists and is PENDING; a batch holding BAD_ID fails as a whole, as a constraint violation would
+        when(jdbcTemplate.batchUpdate(startsWith("update"), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(call -> {
+                    Collection<Object> lines = call.getArgument(1);
+                    ParameterizedPreparedStatementSetter<Object> setter = call.getArgument(3);
+                    int[] counts = new int[lines.size()];
+                    int i = 0;
+                    for (Object line : lines) {
+                        PreparedStatement ps = mock(PreparedStatement.class);
+                        setter.setValues(ps, line);
+                        ArgumentCaptor<String> status = ArgumentCaptor.forClass(String.class);
+                        ArgumentCaptor<Long> id = ArgumentCaptor.forClass(Long.class);
+                        verify(ps).setString(eq(1), status.capture());
+                        verify(ps).setLong(eq(2), id.capture());
+                        if (id.getValue() == BAD_ID) {
+                            throw new DataIntegrityViolationException("value too long");
+                        }
+                        statusUpdates.add(id.getValue() + ":" + status.getValue());
+                        counts[i++] = 1;
+                    }
+                    return new int[][] { counts };
+                });
+        when(jdbcTemplate.batchUpdate(startsWith("insert"), anyCollection(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class))).thenAnswer(call -> {
+                    Collection<LabResult> rows = call.getArgument(1);
+                    rows.forEach(r -> results.put(r.getLabOrderId(), LabResultStore.text(r)));
+                    return new int[][] { new int[rows.size()] };
+                });
+    }
+
+    @Test
+    void csvHonoursQuotesEscapedQuotesLineBreaksAndAReorderedHeader() throws IOException {
+        String csv = "id,status,result\r\n"
+                + "1,COMPLETED,\"glucose, fasting: \"\"high\"\"\nsee note\"\r\n"
+                + "2,,plain\r\n"
+                + "\r\n"
+                + "3,cancelled,\"\"";
+
+        IngestProgress progress = ingest(csv, LabResultIngestService.Format.CSV);
+
+        assertThat(results).containsExactly(
+                Map.entry(1L, "glucose, fasting: \"high\"\nsee note"),
+                Map.entry(2L, "plain"),
+                Map.entry(3L, ""));
+        assertThat(statusUpdates).containsExactly("1:COMPLETED", "2:COMPLETED", "3:CANCELLED");
+        assertThat(progress).isEqualTo(new IngestProgress(1, 3, 3, 0, 0, true));
+    }
+
+    @Test
+    void csvWithoutHeaderUsesIdResultStatus() throws IOException {
+        IngestProgress progress = ingest("1,a\n2,b,COMPLETED\n", LabResultIngestService.Format.CSV);
+
+        assertThat(results).containsExactly(Map.entry(1L, "a"), Map.entry(2L, "b"));
+        assertThat(progress.updated()).isEqualTo(2);
+    }
+
+    @Test
+    void statusOutsideTheFinalOnesIsRejected() throws IOException {
+        String ndjson = """
+                {"id":1,"result":"a","status":"completed"}
+                {"id":2,"result":"b","status":"DONE"}
+                {"id":3,"result":"c","status":"PENDING"}
+                {"id":4,"result":"d","status":"CANCELLED"}
+                not json
+                """;
+
+        IngestProgress progress = ingest(ndjson, LabResultIngestService.Format.NDJSON);
+
+        assertThat(statusUpdates).containsExactly("1:COMPLETED", "4:CANCELLED");
+        assertThat(progress.received()).isEqualTo(5);
+        assertThat(progress.rejected()).isEqualTo(3);
+    }
+
+    @Test
+    void overlongRecordsAreRejectedAndReadingResumesAfterThem() throws IOException {
+        ReflectionTestUtils.setField(service, "recordMaxChars", 40);
+        String longResult = "x".repeat(100);
+        String ndjson = "{\"id\":1,\"result\":\"a\"}\n"
+                + "{\"id\":2,\"result\":\"" + longResult + "\"}\n"
+                + "{\"id\":3,\"result\":\"c\"}";
+        String csv = "1,a\n"
+                + "2,\"" + longResult + ",\"\"\n" + longResult + "\"\n"
+                + "3,c\n";
+
+        IngestProgress fromNdjson = ingest(ndjson, LabResultIngestService.Format.NDJSON);
+        assertThat(results.keySet()).containsExactly(1L, 3L);
+        results.clear();
+        IngestProgress fromCsv = ingest(csv, LabResultIngestService.Format.CSV);
+        assertThat(results.keySet()).containsExactly(1L, 3L);
+
+        assertThat(fromNdjson).isEqualTo(new IngestProgress(1, 3, 2, 0, 1, true));
+        assertThat(fromCsv).isEqualTo(new IngestProgress(1, 3, 2, 0, 1, true));
+    }
+
+    @Test
+    void failedChunkIsRetriedRowByRowAndOnlyTheBadRowIsRejected() throws IOException {
+        String ndjson = """
+                {"id":1,"result":"a"}
+                {"id":13,"result":"b"}
+                {"id":3,"result":"c"}
+                """;
+
+        IngestProgress progress = ingest(ndjson, LabResultIngestService.Format.NDJSON);
+
+        assertThat(results.keySet()).containsExactly(1L, 3L);
+        assertThat(progress).isEqualTo(new IngestProgress(1, 3, 2, 0, 1, true));
+        verify(summaries).recordResulted(List.of(1L));
+        verify(summaries).recordResulted(List.of(3L));
+    }
+
+    private IngestProgress ingest(String body, LabResultIngestService.Format format) throws IOException {
+        List<IngestProgress> chunks = new ArrayList<>();
+        IngestProgress last = service.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                format, chunks::add);
+        assertThat(chunks).last().isEqualTo(last);
+        return last;
+    }
+}
@@ -0,0 +1,90 @@
+package com.medinsight.messaging.consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+ * Listener metrics, tagged by listener (records/s = rate of medinsight.consumer.records):
+ *   medinsight.consumer.records      records done, outcome=processed|failed
+ *   medinsight.consumer.processing   handling time per record (per poll in lab batch mode: .batch)
+ *   medinsight.consumer.end-to-end   producer timestamp to committed DB write
+ *   medinsight.consumer.failures     failed attempts by exception type
+ *   medinsight.consumer.routed       records sent on to a retry tier or the DLT (see RetryRouter)
+ *   medinsight.consumer.duplicates   redelivered events skipped by event id
+ * Per-partition lag comes from the Kafka client itself (kafka.consumer.fetch.manager.records.lag),
+ * which Spring Boot binds for every consumer.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConsumerMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    // Wraps a record handler so every call is timed and counted; failures are rethrown unchanged
+    public <V> KeyOrderedDispatcher.RecordHandler<V> timed(String listener,
+            KeyOrderedDispatcher.RecordHandler<V> handler) {
+        return record -> {
+            long start = System.nanoTime();
+            try {
+                handler.handle(record);
+            } catch (Exception e) {
+                failed(listener, e);
+                throw e;
+            }
+            timer("medinsight.consumer.processing", listener).record(Duration.ofNanos(System.nanoTime() - start));
+            processed(listener, List.of(record));
+        };
+    }
+
+    public void batch(String listener, long startNanos) {
+        timer("medinsight.consumer.processing.batch", listener)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    // Call once the records' writes have committed
+    public void processed(String listener, List<? extends ConsumerRecord<?, ?>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Timer endToEnd = timer("medinsight.consumer.end-to-end", listener);
+        for (ConsumerRecord<?, ?> r : records) {
+            endToEnd.record(Duration.ofMillis(Math.max(0, now - r.timestamp())));
+        }
+        records(listener, "processed").increment(records.size());
+    }
+
+    public void failed(String listener, Exception e) {
+        records(listener, "failed").increment();
+        Counter.builder("medinsight.consumer.failures")
+                .tag("listener", listener)
+                .tag("exception", e.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public void duplicate(String listener) {
+        Counter.builder("medinsight.consumer.duplicates").tag("listener", listener).register(meterRegistry).increment();
+    }
+
+    private Counter records(String listener, String outcome) {
+        return Counter.builder("medinsight.consumer.records")
+                .tag("listener", listener)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String name, String listener) {
+        return Timer.builder(name)
+                .tag("listener", listener)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,85 @@
+package com.medinsight.messaging.consumer;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Bulk replay of a dead-letter topic back to the topic each record originally came from
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class DeadLetterReplayer {
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    // Replays up to max records past the replay group's committed position; returns how many were replayed
+    @SuppressWarnings("unchecked")
+    public synchronized int replay(String dltTopic, int max) throws Exception {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(max, 500));
+
+        try (Consumer<String, byte[]> consumer = (Consumer<String, byte[]>) consumerFactory
+                .createConsumer(dltTopic + "-replay", null, null, overrides)) {
+            List<TopicPartition> partitions = consumer.partitionsFor(dltTopic).stream()
+                    .map(p -> new TopicPartition(dltTopic, p.partition()))
+                    .toList();
+            consumer.assign(partitions);
+
+            int replayed = 0;
+            while (replayed < max) {
+                var records = consumer.poll(Duration.ofSeconds(1));
+                if (records.isEmpty()) {
+                    break;
+                }
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                List<CompletableFuture<?>> sends = new ArrayList<>();
+                for (ConsumerRecord<String, byte[]> r : records) {
+                    if (replayed == max) {
+                        break;
+                    }
+                    Header origin = r.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC);
+                    if (origin == null) {
+                        log.warn("Dead letter {}-{}@{} has no original topic, skipped", r.topic(), r.partition(),
+                                r.offset());
+                    } else {
+                        // Fresh headers: the replayed record starts over with a full set of retries
+                        String target = new String(origin.value(), StandardCharsets.UTF_8);
+                        sends.add(kafkaTemplate.send(new ProducerRecord<>(target, r.key(), r.value())));
+                        replayed++;
+                    }
+                    offsets.put(new TopicPartition(r.topic(), r.partition()), new OffsetAndMetadata(r.offset() + 1));
+                }
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+                consumer.commitSync(offsets);
+            }
+            log.info("Replayed {} records from {}", replayed, dltTopic);
+            return replayed;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.medinsight.messaging.consumer;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+// Retry tiers, key-ordered dispatch, DLT replay and consumer metrics; consuming services @Import it
+@Configuration
+@ComponentScan
+public class KafkaConsumerSupport {
+}
@@ -0,0 +1,148 @@
+package com.medinsight.messaging.consumer;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Runs one poll's records on virtual threads: one thread per key (dossierId), records of a key in
+ * offset order, different keys in parallel. A failed record is handed to the failure handler (the
+ * retry topics) and its key carries on; only if that hand-off fails too does the key stop for this
+ * poll. Afterwards each partition is committed up to its highest contiguous completed offset and
+ * re-seeked to the first incomplete one, so nothing is skipped. Records that completed past that
+ * point are remembered and skipped when the seek delivers them again, so they are not handled twice.
+ * Requires spring.kafka.listener.ack-mode=manual and must be called on the listener thread.
+ */
+@Component
+@Slf4j
+public class KeyOrderedDispatcher {
+
+    @FunctionalInterface
+    public interface RecordHandler<V> {
+        void handle(ConsumerRecord<String, V> record) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface FailureHandler<V> {
+        void onFailure(ConsumerRecord<String, V> record, Exception error) throws Exception;
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Offsets completed beyond a partition's committed position; pruned as the commit moves past them
+    private final Map<TopicPartition, NavigableSet<Long>> completedAhead = new ConcurrentHashMap<>();
+
+    @Value("${medinsight.kafka.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Returns the number of records that completed
+    public <V> int dispatch(List<ConsumerRecord<String, V>> records, RecordHandler<V> handler,
+            FailureHandler<V> onFailure, Consumer<?, ?> consumer) {
+        boolean[] done = new boolean[records.size()];
+        Map<String, List<Integer>> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, V> r = records.get(i);
+            NavigableSet<Long> ahead = completedAhead.get(new TopicPartition(r.topic(), r.partition()));
+            if (ahead != null && ahead.contains(r.offset())) {
+                done[i] = true;
+                continue;
+            }
+            String key = r.key() != null ? r.key() : "";
+            byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+
+        List<Future<?>> running = new ArrayList<>(byKey.size());
+        for (List<Integer> indexes : byKey.values()) {
+            running.add(executor.submit(() -> {
+                for (int i : indexes) {
+                    try {
+                        handler.handle(records.get(i));
+                        done[i] = true;
+                    } catch (Exception e) {
+                        ConsumerRecord<String, V> r = records.get(i);
+                        try {
+                            onFailure.onFailure(r, e);
+                            done[i] = true;
+                        } catch (Exception routing) {
+                            log.error("Processing failed at {}-{}@{}, key {} paused until redelivery", r.topic(),
+                                    r.partition(), r.offset(), r.key(), routing);
+                            return;
+                        }
+                    }
+                }
+            }));
+        }
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (Exception e) {
+                log.error("Key worker did not finish", e);
+            }
+        }
+        // Each worker's writes to done[] happen-before its Future.get() returns
+        return commitContiguous(records, done, consumer);
+    }
+
+    private <V> int commitContiguous(List<ConsumerRecord<String, V>> records, boolean[] done,
+            Consumer<?, ?> consumer) {
+        Map<TopicPartition, OffsetAndMetadata> commits = new HashMap<>();
+        Map<TopicPartition, Long> firstIncomplete = new HashMap<>();
+        int completed = 0;
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, V> r = records.get(i);
+            TopicPartition tp = new TopicPartition(r.topic(), r.partition());
+            if (done[i]) {
+                completed++;
+                if (!firstIncomplete.containsKey(tp)) {
+                    commits.put(tp, new OffsetAndMetadata(r.offset() + 1));
+                }
+            } else {
+                firstIncomplete.putIfAbsent(tp, r.offset());
+            }
+        }
+        if (!commits.isEmpty()) {
+            consumer.commitSync(commits);
+        }
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, V> r = records.get(i);
+            TopicPartition tp = new TopicPartition(r.topic(), r.partition());
+            if (done[i] && firstIncomplete.containsKey(tp) && r.offset() > firstIncomplete.get(tp)) {
+                completedAhead.computeIfAbsent(tp, k -> new ConcurrentSkipListSet<>()).add(r.offset());
+            }
+        }
+        commits.forEach((tp, committed) -> completedAhead.computeIfPresent(tp, (k, ahead) -> {
+            ahead.headSet(committed.offset()).clear();
+            return ahead.isEmpty() ? null : ahead;
+        }));
+        if (!firstIncomplete.isEmpty()) {
+            firstIncomplete.forEach(consumer::seek);
+            try {
+                Thread.sleep(retryBackoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return completed;
+    }
+}
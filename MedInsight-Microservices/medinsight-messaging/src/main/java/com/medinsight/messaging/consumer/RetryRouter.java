@@ -0,0 +1,125 @@
+package com.medinsight.messaging.consumer;
+
+import com.medinsight.messaging.contract.EventCodec;
+import com.medinsight.messaging.contract.RequestEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Component;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Non-blocking retries: a failed record is republished to <topic>.retry-<n>, consumed again after
+ * that tier's backoff, and after the last tier lands in <topic>.dlt with the original payload,
+ * its origin (topic/partition/offset) and the last exception in the standard DLT headers.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RetryRouter {
+
+    public static final String ATTEMPT_HEADER = "medinsight-attempt";
+
+    private static final LogAccessor LOG = new LogAccessor(RetryRouter.class);
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${medinsight.kafka.retry.backoffs-ms:1000,10000,60000}")
+    private List<Long> backoffs;
+
+    public String[] retryTopics(String topic) {
+        String[] topics = new String[backoffs.size()];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = topic + ".retry-" + i;
+        }
+        return topics;
+    }
+
+    public String dltTopic(String topic) {
+        return topic + ".dlt";
+    }
+
+    public long backoffFor(String retryTopic) {
+        return backoffs.get(Integer.parseInt(retryTopic.substring(retryTopic.lastIndexOf('-') + 1)));
+    }
+
+    // When a retry-tier record is due; every record of a tier has the same delay, so they come due in order
+    public long dueAt(ConsumerRecord<?, ?> record) {
+        return record.timestamp() + backoffFor(record.topic());
+    }
+
+    // Synchronous, so the caller only commits the failed record once it is safely parked elsewhere
+    public void route(ConsumerRecord<String, RequestEvent> record, Exception error) throws Exception {
+        DeserializationException undecodable = SerializationUtils.getExceptionFromHeader(record,
+                SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, LOG);
+        byte[] payload = undecodable != null ? undecodable.getData() : EventCodec.encode(record.value());
+        Exception cause = undecodable != null ? undecodable : error;
+
+        String originalTopic = header(record.headers(), KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic());
+        int attempt = record.headers().lastHeader(ATTEMPT_HEADER) != null
+                ? ByteBuffer.wrap(record.headers().lastHeader(ATTEMPT_HEADER).value()).getInt()
+                : 0;
+        // Decoding will not succeed on a retry either
+        String target = undecodable == null && attempt < backoffs.size()
+                ? retryTopics(originalTopic)[attempt]
+                : dltTopic(originalTopic);
+
+        Headers headers = new RecordHeaders();
+        if (record.headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC) != null) {
+            copy(record.headers(), headers, KafkaHeaders.DLT_ORIGINAL_TOPIC);
+            copy(record.headers(), headers, KafkaHeaders.DLT_ORIGINAL_PARTITION);
+            copy(record.headers(), headers, KafkaHeaders.DLT_ORIGINAL_OFFSET);
+        } else {
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, record.topic().getBytes(StandardCharsets.UTF_8));
+            headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(4).putInt(record.partition()).array());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(8).putLong(record.offset()).array());
+        }
+        headers.add(ATTEMPT_HEADER, ByteBuffer.allocate(4).putInt(attempt + 1).array());
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, cause.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE,
+                String.valueOf(cause.getMessage()).getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_STACKTRACE, stackTrace(cause).getBytes(StandardCharsets.UTF_8));
+
+        kafkaTemplate.send(new ProducerRecord<>(target, null, record.key(), payload, headers))
+                .get(10, TimeUnit.SECONDS);
+        meterRegistry.counter("medinsight.consumer.routed", "topic", originalTopic, "target", target).increment();
+        log.warn("Routed {}-{}@{} (attempt {}) to {}", record.topic(), record.partition(), record.offset(),
+                attempt + 1, target);
+    }
+
+    private static String header(Headers headers, String name, String fallback) {
+        Header h = headers.lastHeader(name);
+        return h != null ? new String(h.value(), StandardCharsets.UTF_8) : fallback;
+    }
+
+    private static void copy(Headers from, Headers to, String name) {
+        Header h = from.lastHeader(name);
+        if (h != null) {
+            to.add(name, h.value());
+        }
+    }
+
+    private static String stackTrace(Exception e) {
+        StringWriter out = new StringWriter();
+        e.printStackTrace(new PrintWriter(out));
+        return out.toString();
+    }
+}
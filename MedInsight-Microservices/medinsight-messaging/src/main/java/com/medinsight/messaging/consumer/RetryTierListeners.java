@@ -0,0 +1,114 @@
+package com.medinsight.messaging.consumer;
+
+import com.medinsight.messaging.contract.RequestEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * One listener container per retry tier (<topic>.retry-<n>), so a record waiting out the 60 s tier
+ * never holds up the 1 s one. A record that is not due yet is nacked: the container pauses that
+ * consumer, keeps polling, and redelivers the record once due; the listener thread never sleeps.
+ * If routing a failed record on fails too, it is nacked and redelivered rather than left to the
+ * default error handler, which would eventually drop it.
+ */
+@Component
+@Slf4j
+public class RetryTierListeners implements SmartLifecycle {
+
+    private final RetryRouter router;
+    private final ConcurrentKafkaListenerContainerFactory<?, ?> containerFactory;
+    private final List<ConcurrentMessageListenerContainer<?, ?>> containers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+
+    @Value("${medinsight.kafka.partitions:6}")
+    private int partitions;
+
+    @Value("${medinsight.kafka.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    public RetryTierListeners(RetryRouter router,
+            ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory) {
+        this.router = router;
+        this.containerFactory = kafkaListenerContainerFactory;
+    }
+
+    // Call while the context starts (e.g. from @PostConstruct); the containers start with the other listeners
+    public void register(String topic, String groupId, String listenerId,
+            KeyOrderedDispatcher.RecordHandler<RequestEvent> handler) {
+        String[] tiers = router.retryTopics(topic);
+        for (int tier = 0; tier < tiers.length; tier++) {
+            ConcurrentMessageListenerContainer<?, ?> container = containerFactory.createContainer(tiers[tier]);
+            container.getContainerProperties().setGroupId(groupId);
+            container.getContainerProperties().setMessageListener(listener(handler));
+            container.setConcurrency(partitions);
+            container.setBeanName(listenerId + "-" + tier);
+            containers.add(container);
+        }
+    }
+
+    private AcknowledgingMessageListener<String, RequestEvent> listener(
+            KeyOrderedDispatcher.RecordHandler<RequestEvent> handler) {
+        return (record, ack) -> {
+            long wait = router.dueAt(record) - System.currentTimeMillis();
+            if (wait > 0) {
+                ack.nack(Duration.ofMillis(wait));
+                return;
+            }
+            try {
+                handler.handle(record);
+            } catch (Exception e) {
+                if (!route(record, e, ack)) {
+                    return;
+                }
+            }
+            ack.acknowledge();
+        };
+    }
+
+    private boolean route(ConsumerRecord<String, RequestEvent> record, Exception error, Acknowledgment ack) {
+        try {
+            router.route(record, error);
+            return true;
+        } catch (Exception routing) {
+            log.error("Cannot route failed retry at {}-{}@{}, redelivering", record.topic(), record.partition(),
+                    record.offset(), routing);
+            ack.nack(Duration.ofMillis(retryBackoffMs));
+            return false;
+        }
+    }
+
+    @Override
+    public void start() {
+        containers.forEach(ConcurrentMessageListenerContainer::start);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Same phase as the @KafkaListener containers
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE;
+    }
+}
@@ -0,0 +1,155 @@
+package com.medinsight.messaging.contract;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Compact binary encoding for RequestEvent.
+ *
+ *   magic(1) type(1) version(1) { tag(varint) length(varint) utf8-bytes }*
+ *
+ * Fields are tagged, so a reader skips tags it does not know and leaves fields it does not
+ * find as null. Never reuse or renumber a tag; add new fields with a new tag and bump VERSION.
+ */
+public final class EventCodec {
+
+    public static final byte MAGIC = (byte) 0xB1;
+    // 2: eventId (tag 5)
+    public static final byte VERSION = 2;
+
+    static final byte TYPE_LAB_REQUESTED = 1;
+    static final byte TYPE_PRESCRIPTION_REQUESTED = 2;
+
+    private static final int TAG_DOSSIER_ID = 1;
+    private static final int TAG_CONSULTATION_ID = 2;
+    private static final int TAG_TEST_CODE = 3;
+    private static final int TAG_MEDICATION_DETAILS = 4;
+    private static final int TAG_EVENT_ID = 5;
+
+    private EventCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= 3 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(RequestEvent event) {
+        if (event instanceof LabRequestedEvent lab) {
+            return new Writer(TYPE_LAB_REQUESTED)
+                    .field(TAG_DOSSIER_ID, lab.dossierId())
+                    .field(TAG_CONSULTATION_ID, lab.consultationId())
+                    .field(TAG_TEST_CODE, lab.testCode())
+                    .field(TAG_EVENT_ID, lab.eventId())
+                    .toByteArray();
+        }
+        PrescriptionRequestedEvent p = (PrescriptionRequestedEvent) event;
+        return new Writer(TYPE_PRESCRIPTION_REQUESTED)
+                .field(TAG_DOSSIER_ID, p.dossierId())
+                .field(TAG_CONSULTATION_ID, p.consultationId())
+                .field(TAG_MEDICATION_DETAILS, p.medicationDetails())
+                .field(TAG_EVENT_ID, p.eventId())
+                .toByteArray();
+    }
+
+    public static RequestEvent decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new IllegalArgumentException("Not a binary event");
+        }
+        String[] f = new String[TAG_EVENT_ID + 1];
+        Reader reader = new Reader(data);
+        while (reader.hasMore()) {
+            int tag = reader.varint();
+            int len = reader.varint();
+            // Unknown tags come from a newer writer: skip them
+            if (tag < f.length) {
+                f[tag] = reader.string(len);
+            } else {
+                reader.skip(len);
+            }
+        }
+        return switch (data[1]) {
+            case TYPE_LAB_REQUESTED -> new LabRequestedEvent(
+                    f[TAG_DOSSIER_ID], f[TAG_CONSULTATION_ID], f[TAG_TEST_CODE], f[TAG_EVENT_ID]);
+            case TYPE_PRESCRIPTION_REQUESTED -> new PrescriptionRequestedEvent(
+                    f[TAG_DOSSIER_ID], f[TAG_CONSULTATION_ID], f[TAG_MEDICATION_DETAILS], f[TAG_EVENT_ID]);
+            default -> throw new IllegalArgumentException("Unknown event type " + data[1]);
+        };
+    }
+
+    private static final class Writer {
+        private byte[] buf = new byte[64];
+        private int pos;
+
+        Writer(byte type) {
+            buf[pos++] = MAGIC;
+            buf[pos++] = type;
+            buf[pos++] = VERSION;
+        }
+
+        Writer field(int tag, String value) {
+            if (value == null) {
+                return this;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(10 + bytes.length);
+            varint(tag);
+            varint(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+            return this;
+        }
+
+        private void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos = 3;
+
+        Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        boolean hasMore() {
+            return pos < buf.length;
+        }
+
+        int varint() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buf[pos++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        String string(int len) {
+            String value = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return value;
+        }
+
+        void skip(int len) {
+            pos += len;
+        }
+    }
+}
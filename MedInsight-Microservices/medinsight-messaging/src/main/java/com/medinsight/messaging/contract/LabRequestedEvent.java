@@ -0,0 +1,22 @@
+package com.medinsight.messaging.contract;
+
+public record LabRequestedEvent(String dossierId, String consultationId, String testCode, String eventId)
+        implements RequestEvent {
+
+    public static final String TOPIC = "lab.requests";
+
+    // eventId is assigned when the event is queued (see OutboxService in dossier-service)
+    public LabRequestedEvent(String dossierId, String consultationId, String testCode) {
+        this(dossierId, consultationId, testCode, null);
+    }
+
+    @Override
+    public String topic() {
+        return TOPIC;
+    }
+
+    @Override
+    public LabRequestedEvent withEventId(String eventId) {
+        return new LabRequestedEvent(dossierId, consultationId, testCode, eventId);
+    }
+}
@@ -0,0 +1,22 @@
+package com.medinsight.messaging.contract;
+
+public record PrescriptionRequestedEvent(String dossierId, String consultationId, String medicationDetails,
+        String eventId) implements RequestEvent {
+
+    public static final String TOPIC = "prescription.requests";
+
+    // eventId is assigned when the event is queued (see OutboxService in dossier-service)
+    public PrescriptionRequestedEvent(String dossierId, String consultationId, String medicationDetails) {
+        this(dossierId, consultationId, medicationDetails, null);
+    }
+
+    @Override
+    public String topic() {
+        return TOPIC;
+    }
+
+    @Override
+    public PrescriptionRequestedEvent withEventId(String eventId) {
+        return new PrescriptionRequestedEvent(dossierId, consultationId, medicationDetails, eventId);
+    }
+}
@@ -0,0 +1,14 @@
+package com.medinsight.messaging.contract;
+
+// Events published by dossier-service; keep this package identical in every service
+public sealed interface RequestEvent permits LabRequestedEvent, PrescriptionRequestedEvent {
+
+    String topic();
+
+    String dossierId();
+
+    // Unique per event, stable across redeliveries and retries; null in payloads written before version 2
+    String eventId();
+
+    RequestEvent withEventId(String eventId);
+}
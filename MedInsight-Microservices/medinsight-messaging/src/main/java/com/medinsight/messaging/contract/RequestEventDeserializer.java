@@ -0,0 +1,30 @@
+package com.medinsight.messaging.contract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+
+// Kafka value deserializer; still reads the JSON payloads produced before the binary codec
+public class RequestEventDeserializer implements Deserializer<RequestEvent> {
+
+    private static final ObjectMapper LEGACY_JSON = new ObjectMapper();
+
+    @Override
+    public RequestEvent deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            if (EventCodec.isBinary(data)) {
+                return EventCodec.decode(data);
+            }
+            return switch (topic) {
+                case LabRequestedEvent.TOPIC -> LEGACY_JSON.readValue(data, LabRequestedEvent.class);
+                case PrescriptionRequestedEvent.TOPIC -> LEGACY_JSON.readValue(data, PrescriptionRequestedEvent.class);
+                default -> throw new IllegalArgumentException("No event contract for topic " + topic);
+            };
+        } catch (Exception e) {
+            throw new SerializationException("Cannot decode event from " + topic, e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.medinsight.messaging.consumer;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedDispatcherTest {
+
+    private static final String TOPIC = "lab.requests";
+    private static final TopicPartition P0 = new TopicPartition(TOPIC, 0);
+    private static final TopicPartition P1 = new TopicPartition(TOPIC, 1);
+
+    private final KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher();
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+    private final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> routed = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void assign() {
+        consumer.assign(List.of(P0, P1));
+        consumer.updateBeginningOffsets(Map.of(P0, 0L, P1, 0L));
+    }
+
+    @AfterEach
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void commitsEveryPartitionWhenAllRecordsComplete() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, 0, "a"), record(0, 1, "b"), record(1, 0, "c"), record(0, 2, "a"));
+
+        int completed = dispatcher.dispatch(records, this::handle, this::route, consumer);
+
+        assertThat(completed).isEqualTo(4);
+        assertThat(committed(P0)).isEqualTo(3);
+        assertThat(committed(P1)).isEqualTo(1);
+        assertThat(handled).containsExactlyInAnyOrder("0@0", "0@1", "1@0", "0@2");
+    }
+
+    @Test
+    void keepsOffsetOrderWithinAKey() {
+        List<ConsumerRecord<String, String>> records = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            records.add(record(0, i, i % 2 == 0 ? "even" : "odd"));
+        }
+
+        dispatcher.dispatch(records, this::handle, this::route, consumer);
+
+        List<String> even = handled.stream().filter(h -> Integer.parseInt(h.substring(2)) % 2 == 0).toList();
+        assertThat(even).isSortedAccordingTo((x, y) ->
+                Integer.compare(Integer.parseInt(x.substring(2)), Integer.parseInt(y.substring(2))));
+    }
+
+    @Test
+    void routedFailureCountsAsCompleted() {
+        List<ConsumerRecord<String, String>> records = List.of(record(0, 0, "a"), record(0, 1, "fail"));
+
+        int completed = dispatcher.dispatch(records, this::handle, this::route, consumer);
+
+        assertThat(completed).isEqualTo(2);
+        assertThat(routed).containsExactly("0@1");
+        assertThat(committed(P0)).isEqualTo(2);
+    }
+
+    @Test
+    void failedHandOffCommitsTheContiguousPrefixAndSeeksBack() {
+        List<ConsumerRecord<String, String>> records = List.of(
+                record(0, 0, "a"), record(0, 1, "stuck"), record(0, 2, "b"), record(0, 3, "stuck"),
+                record(1, 0, "c"));
+
+        int completed = dispatcher.dispatch(records, this::handle, this::unroutable, consumer);
+
+        assertThat(completed).isEqualTo(3);
+        assertThat(committed(P0)).isEqualTo(1);
+        assertThat(consumer.position(P0)).isEqualTo(1);
+        assertThat(committed(P1)).isEqualTo(1);
+        // The stuck key stops for this poll; other keys carry on
+        assertThat(handled).containsExactlyInAnyOrder("0@0", "0@2", "1@0");
+    }
+
+    @Test
+    void recordsCompletedPastTheSeekAreNotHandledAgain() {
+        dispatcher.dispatch(List.of(record(0, 0, "a"), record(0, 1, "stuck"), record(0, 2, "b")),
+                this::handle, this::unroutable, consumer);
+        handled.clear();
+
+        // Redelivery from the seek position, now with the cause fixed
+        int completed = dispatcher.dispatch(List.of(record(0, 1, "stuck"), record(0, 2, "b"), record(0, 3, "b")),
+                r -> handled.add(r.partition() + "@" + r.offset()), this::route, consumer);
+
+        assertThat(completed).isEqualTo(3);
+        assertThat(handled).containsExactlyInAnyOrder("0@1", "0@3");
+        assertThat(committed(P0)).isEqualTo(4);
+    }
+
+    private void handle(ConsumerRecord<String, String> r) {
+        if (r.key().equals("fail") || r.key().equals("stuck")) {
+            throw new IllegalStateException("cannot process " + r.offset());
+        }
+        handled.add(r.partition() + "@" + r.offset());
+    }
+
+    private void route(ConsumerRecord<String, String> r, Exception e) {
+        routed.add(r.partition() + "@" + r.offset());
+    }
+
+    private void unroutable(ConsumerRecord<String, String> r, Exception e) {
+        throw new IllegalStateException("retry topic unreachable");
+    }
+
+    private long committed(TopicPartition tp) {
+        OffsetAndMetadata offset = consumer.committed(Set.of(tp)).get(tp);
+        return offset != null ? offset.offset() : -1;
+    }
+
+    private static ConsumerRecord<String, String> record(int partition, long offset, String key) {
+        return new ConsumerRecord<>(TOPIC, partition, offset, key, "value");
+    }
+}
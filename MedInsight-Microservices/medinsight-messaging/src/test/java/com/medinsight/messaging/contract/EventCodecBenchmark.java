@@ -0,0 +1,65 @@
+package com.medinsight.messaging.contract;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Binary EventCodec versus the previous Map -> JSON string -> readTree path
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventCodecBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private LabRequestedEvent event;
+    private String json;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        event = new LabRequestedEvent("0190a3f2-6c1e-7b4a-9d2e-3f5a8c7b1e20", "CONS-2024-000123", "HBA1C");
+        json = objectMapper.writeValueAsString(Map.of(
+                "dossierId", event.dossierId(),
+                "consultationId", event.consultationId(),
+                "testCode", event.testCode()));
+        binary = EventCodec.encode(event);
+    }
+
+    @Benchmark
+    public String jsonEncode() throws Exception {
+        return objectMapper.writeValueAsString(Map.of(
+                "dossierId", event.dossierId(),
+                "consultationId", event.consultationId(),
+                "testCode", event.testCode()));
+    }
+
+    @Benchmark
+    public LabRequestedEvent jsonDecode() throws Exception {
+        JsonNode node = objectMapper.readTree(json);
+        return new LabRequestedEvent(node.path("dossierId").asText(), node.path("consultationId").asText(),
+                node.path("testCode").asText());
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        return EventCodec.encode(event);
+    }
+
+    @Benchmark
+    public RequestEvent binaryDecode() {
+        return EventCodec.decode(binary);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(EventCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
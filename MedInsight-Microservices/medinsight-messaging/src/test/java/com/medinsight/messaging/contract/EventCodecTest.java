@@ -0,0 +1,99 @@
+package com.medinsight.messaging.contract;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventCodecTest {
+
+    @Test
+    void labEventRoundTrips() {
+        LabRequestedEvent event = new LabRequestedEvent("d-1", "c-1", "HBA1C", "018f2c1e-7a40-7000-8000-000000000001");
+
+        byte[] data = EventCodec.encode(event);
+
+        assertThat(EventCodec.isBinary(data)).isTrue();
+        assertThat(data[2]).isEqualTo(EventCodec.VERSION);
+        assertThat(EventCodec.decode(data)).isEqualTo(event);
+    }
+
+    @Test
+    void prescriptionEventRoundTripsMultiByteLengthsAndUnicode() {
+        // > 127 bytes, so the length takes two varint bytes
+        String details = "Paracétamol 1 g, 3×/jour pendant 5 jours\n".repeat(10);
+        PrescriptionRequestedEvent event = new PrescriptionRequestedEvent("d-é", "c-1", details, "e-1");
+
+        assertThat(EventCodec.decode(EventCodec.encode(event))).isEqualTo(event);
+    }
+
+    @Test
+    void nullFieldsAreOmittedAndDecodeAsNull() {
+        LabRequestedEvent event = new LabRequestedEvent("d-1", null, "NFS");
+
+        byte[] data = EventCodec.encode(event);
+
+        assertThat(EventCodec.decode(data)).isEqualTo(event);
+        assertThat(((LabRequestedEvent) EventCodec.decode(data)).eventId()).isNull();
+    }
+
+    @Test
+    void versionOnePayloadHasNoEventId() {
+        byte[] v1 = payload(EventCodec.TYPE_LAB_REQUESTED, (byte) 1,
+                field(1, "d-1"), field(2, "c-1"), field(3, "GLY"));
+
+        assertThat(EventCodec.decode(v1)).isEqualTo(new LabRequestedEvent("d-1", "c-1", "GLY", null));
+    }
+
+    @Test
+    void tagsFromANewerWriterAreSkipped() {
+        byte[] newer = payload(EventCodec.TYPE_PRESCRIPTION_REQUESTED, (byte) 3,
+                field(1, "d-1"), field(9, "unknown to this reader"), field(4, "Amoxicilline"), field(5, "e-1"));
+
+        assertThat(EventCodec.decode(newer))
+                .isEqualTo(new PrescriptionRequestedEvent("d-1", null, "Amoxicilline", "e-1"));
+    }
+
+    @Test
+    void unknownTypeIsRejected() {
+        byte[] data = payload((byte) 42, EventCodec.VERSION, field(1, "d-1"));
+
+        assertThatThrownBy(() -> EventCodec.decode(data))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown event type 42");
+    }
+
+    @Test
+    void nonBinaryPayloadIsRejected() {
+        byte[] json = "{\"dossierId\":\"d-1\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThat(EventCodec.isBinary(json)).isFalse();
+        assertThat(EventCodec.isBinary(new byte[] { EventCodec.MAGIC, 1 })).isFalse();
+        assertThat(EventCodec.isBinary(null)).isFalse();
+        assertThatThrownBy(() -> EventCodec.decode(json)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] payload(byte type, byte version, byte[]... fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(EventCodec.MAGIC);
+        out.write(type);
+        out.write(version);
+        for (byte[] f : fields) {
+            out.writeBytes(f);
+        }
+        return out.toByteArray();
+    }
+
+    // Tags and lengths below 128 fit in one varint byte
+    private static byte[] field(int tag, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(tag);
+        out.write(bytes.length);
+        out.writeBytes(bytes);
+        return out.toByteArray();
+    }
+}
@@ -1,9 +1,14 @@
 package com.medinsight.ordonnance;
 
+import com.medinsight.messaging.consumer.KafkaConsumerSupport;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@Import(KafkaConsumerSupport.class)
 public class OrdonnanceServiceApplication {
 
     public static void main(String[] args) {
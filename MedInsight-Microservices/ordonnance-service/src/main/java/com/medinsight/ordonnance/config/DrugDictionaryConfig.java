@@ -0,0 +1,70 @@
+package com.medinsight.ordonnance.config;
+
+import com.medinsight.ordonnance.service.DrugDictionary;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Loads drugs/dictionary.csv, interns every code in the drug table (existing ids are kept) and builds the dictionary
+@Configuration
+@Slf4j
+public class DrugDictionaryConfig {
+
+    private record CsvDrug(String code, String name, List<String> aliases) {
+    }
+
+    // EntityManagerFactory: the drug table must exist (Hibernate schema update) before it is synced
+    @Bean
+    public DrugDictionary drugDictionary(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory)
+            throws IOException {
+        List<CsvDrug> drugs = read();
+        jdbcTemplate.batchUpdate("insert into drug (code, name) values (?, ?) "
+                + "on conflict (code) do update set name = excluded.name", drugs, drugs.size(), (ps, d) -> {
+                    ps.setString(1, d.code());
+                    ps.setString(2, d.name());
+                });
+        Map<String, Integer> ids = new HashMap<>();
+        jdbcTemplate.query("select id, code from drug", rs -> {
+            ids.put(rs.getString(2), rs.getInt(1));
+        });
+
+        List<DrugDictionary.Entry> entries = new ArrayList<>(drugs.size());
+        for (CsvDrug d : drugs) {
+            entries.add(new DrugDictionary.Entry(ids.get(d.code()), d.code(), d.name(), d.aliases()));
+        }
+        log.info("Drug dictionary loaded: {} drugs", entries.size());
+        return new DrugDictionary(entries);
+    }
+
+    private static List<CsvDrug> read() throws IOException {
+        List<CsvDrug> drugs = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new ClassPathResource("drugs/dictionary.csv").getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] f = line.split(";", -1);
+                List<String> aliases = f.length > 2 && !f[2].isBlank()
+                        ? Arrays.stream(f[2].split("\\|")).map(String::trim).toList()
+                        : List.of();
+                drugs.add(new CsvDrug(f[0].trim(), f[1].trim(), aliases));
+            }
+        }
+        return drugs;
+    }
+}
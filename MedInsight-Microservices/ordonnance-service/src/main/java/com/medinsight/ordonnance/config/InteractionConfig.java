@@ -0,0 +1,55 @@
+package com.medinsight.ordonnance.config;
+
+import com.medinsight.ordonnance.domain.InteractionSeverity;
+import com.medinsight.ordonnance.service.DrugDictionary;
+import com.medinsight.ordonnance.service.InteractionEngine;
+import com.medinsight.ordonnance.service.InteractionMatrix;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Builds the interaction matrix from drugs/interactions.csv over the dictionary's ids
+@Configuration
+@Slf4j
+public class InteractionConfig {
+
+    @Bean
+    public InteractionMatrix interactionMatrix(DrugDictionary dictionary) throws IOException {
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(dictionary.maxId());
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new ClassPathResource("drugs/interactions.csv").getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] f = line.split(";", 4);
+                builder.add(drugId(dictionary, f[0]), drugId(dictionary, f[1]),
+                        InteractionSeverity.valueOf(f[2].trim()).code(), f.length > 3 ? f[3].trim() : null);
+            }
+        }
+        InteractionMatrix matrix = builder.build();
+        log.info("Interaction matrix loaded: {} pairs", matrix.pairs());
+        return matrix;
+    }
+
+    @Bean
+    public InteractionEngine interactionEngine(InteractionMatrix matrix, JdbcTemplate jdbcTemplate) {
+        return new InteractionEngine(matrix, jdbcTemplate);
+    }
+
+    private static int drugId(DrugDictionary dictionary, String code) {
+        DrugDictionary.Entry drug = dictionary.byCode(code.trim());
+        if (drug == null) {
+            throw new IllegalStateException("drugs/interactions.csv: " + code + " is not in the drug dictionary");
+        }
+        return drug.id();
+    }
+}
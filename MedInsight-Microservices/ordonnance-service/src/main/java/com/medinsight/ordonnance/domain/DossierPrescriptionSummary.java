@@ -0,0 +1,22 @@
+package com.medinsight.ordonnance.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Per-dossier prescription counters, kept up to date by DossierPrescriptionSummaryService in the writers' transactions
+@Entity
+@Table(name = "dossier_prescription_summary")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DossierPrescriptionSummary {
+    @Id
+    private String dossierId;
+    private long totalPrescriptions;
+    // status CREATED
+    private long activePrescriptions;
+}
@@ -0,0 +1,25 @@
+package com.medinsight.ordonnance.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Interned drug: prescription lines store this compact id instead of a name. Rows are kept in sync with
+// drugs/dictionary.csv at startup (see DrugDictionaryConfig); ids never change once assigned.
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Drug {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+    @Column(unique = true, nullable = false)
+    private String code;
+    private String name;
+}
@@ -0,0 +1,16 @@
+package com.medinsight.ordonnance.domain;
+
+// Ordered from least to most severe; code() is the byte kept in InteractionMatrix (0 = no interaction)
+public enum InteractionSeverity {
+    MINOR, MODERATE, MAJOR, CONTRAINDICATED;
+
+    private static final InteractionSeverity[] BY_CODE = values();
+
+    public byte code() {
+        return (byte) (ordinal() + 1);
+    }
+
+    public static InteractionSeverity ofCode(byte code) {
+        return BY_CODE[code - 1];
+    }
+}
@@ -1,14 +1,25 @@
 package com.medinsight.ordonnance.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDate;
+
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_prescription_dossier_id", columnList = "dossierId"),
+        @Index(name = "idx_prescription_status_active_until", columnList = "status, activeUntil"),
+        @Index(name = "idx_prescription_change_xid", columnList = "changeXid")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -20,4 +31,16 @@ public class Prescription {
     private String consultationId;
     private String medicationDetails;
     private String status;
+    // Last day of treatment (longest line's durationDays); null when a drug line has no duration, in which
+    // case it stays active until its status is changed
+    private LocalDate activeUntil;
+    // RequestEvent.eventId; the unique constraint is what makes consumption idempotent (null for older rows)
+    @Column(unique = true)
+    private String eventId;
+    // Id of the transaction that last wrote the row, set by the database on insert and on every status
+    // change; PrescriptionExportService takes its deltas by it
+    @JsonIgnore
+    @Column(insertable = false, updatable = false,
+            columnDefinition = "bigint not null default (pg_current_xact_id()::text::bigint)")
+    private Long changeXid;
 }
@@ -0,0 +1,36 @@
+package com.medinsight.ordonnance.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Interaction flagged when a prescription was consumed; otherPrescriptionId equals prescriptionId for
+// two drugs of the same prescription
+@Entity
+@Table(indexes = @Index(name = "idx_prescription_interaction_prescription", columnList = "prescriptionId"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PrescriptionInteraction {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_interaction_seq")
+    @SequenceGenerator(name = "prescription_interaction_seq", sequenceName = "prescription_interaction_seq",
+            allocationSize = 50)
+    private Long id;
+    private Long prescriptionId;
+    private Long otherPrescriptionId;
+    // Drug.id of the drug in this prescription and of the one it interacts with
+    private Integer drugId;
+    private Integer otherDrugId;
+    @Enumerated(EnumType.STRING)
+    private InteractionSeverity severity;
+}
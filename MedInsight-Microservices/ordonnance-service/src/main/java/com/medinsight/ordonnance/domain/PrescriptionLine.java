@@ -0,0 +1,38 @@
+package com.medinsight.ordonnance.domain;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One structured line parsed from Prescription.medicationDetails; null fields were not found in the text
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_prescription_line_drug", columnList = "drugId, prescriptionId"),
+        @Index(name = "idx_prescription_line_prescription", columnList = "prescriptionId, lineNo")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PrescriptionLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prescription_line_seq")
+    @SequenceGenerator(name = "prescription_line_seq", sequenceName = "prescription_line_seq", allocationSize = 50)
+    private Long id;
+    private Long prescriptionId;
+    private int lineNo;
+    // Drug.id; null when the line names no drug from the dictionary
+    private Integer drugId;
+    private Double doseAmount;
+    private String doseUnit;
+    private Double timesPerDay;
+    private Integer durationDays;
+    // The line as written, kept only when no drug was recognised
+    private String unparsedText;
+}
@@ -1,40 +1,115 @@
 package com.medinsight.ordonnance.event;
 
+import jakarta.annotation.PostConstruct;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.medinsight.ordonnance.domain.Prescription;
 import com.medinsight.ordonnance.repository.PrescriptionRepository;
+import com.medinsight.ordonnance.service.PrescriptionService;
+import com.medinsight.messaging.consumer.ConsumerMetrics;
+import com.medinsight.messaging.consumer.KeyOrderedDispatcher;
+import com.medinsight.messaging.consumer.RetryRouter;
+import com.medinsight.messaging.consumer.RetryTierListeners;
+import com.medinsight.messaging.contract.PrescriptionRequestedEvent;
+import com.medinsight.messaging.contract.RequestEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.List;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class PrescriptionConsumer {
 
     private final PrescriptionRepository repo;
-    private final ObjectMapper objectMapper;
+    private final PrescriptionService prescriptionService;
+    private final KeyOrderedDispatcher dispatcher;
+    private final RetryRouter router;
+    private final RetryTierListeners retryTiers;
+    private final ConsumerMetrics metrics;
+    private final ProcessedEventFilter processedEvents;
+    private final JdbcTemplate jdbcTemplate;
 
-    @KafkaListener(topics = "prescription.requests", groupId = "ordonnance-group")
-    public void consumePrescriptionRequest(String message) {
-        log.info("Received prescription request: {}", message);
-        try {
-            // Assuming message: {"dossierId":"...", "consultationId":"...",
-            // "medicationDetails":"..."}
-            var jsonNode = objectMapper.readTree(message);
+    @Value("${ordonnance.dedup.warm-up:100000}")
+    private int warmUp;
 
-            Prescription p = new Prescription();
-            p.setDossierId(jsonNode.path("dossierId").asText());
-            p.setConsultationId(jsonNode.path("consultationId").asText());
-            p.setMedicationDetails(jsonNode.path("medicationDetails").asText());
-            p.setStatus("CREATED");
+    private static final String LISTENER = "prescription-requests";
+    private static final String RETRY_LISTENER = "prescription-requests-retry";
+
+    // Records of one dossier run in order on their own virtual thread (KeyOrderedDispatcher), so the
+    // interaction check of a prescription sees the dossier's previous one
+    @KafkaListener(topics = PrescriptionRequestedEvent.TOPIC, groupId = "ordonnance-group", batch = "true",
+            concurrency = "${medinsight.kafka.partitions:6}")
+    public void consumePrescriptionRequests(List<ConsumerRecord<String, RequestEvent>> records,
+            Consumer<?, ?> consumer) {
+        int completed = dispatcher.dispatch(records, metrics.timed(LISTENER, this::consumePrescriptionRequest),
+                router::route, consumer);
+        log.info("Saved {} of {} prescriptions", completed, records.size());
+    }
 
-            repo.save(p);
-            log.info("Prescription saved: {}", p);
+    // Retried prescriptions go through the same duplicate check as first deliveries
+    @PostConstruct
+    void registerRetryTiers() {
+        retryTiers.register(PrescriptionRequestedEvent.TOPIC, "ordonnance-group", RETRY_LISTENER,
+                metrics.timed(RETRY_LISTENER, this::consumePrescriptionRequest));
+    }
+
+    // Exceptions propagate so the record is routed to the next retry tier or the DLT
+    private void consumePrescriptionRequest(ConsumerRecord<String, RequestEvent> record) {
+        if (!(record.value() instanceof PrescriptionRequestedEvent event)) {
+            throw new IllegalArgumentException("Undecodable prescription request at " + record.topic() + "-"
+                    + record.partition() + "@" + record.offset());
+        }
+        String eventId = event.eventId();
+        // Hot path: the filter answers "never seen" without touching the database
+        if (eventId != null && processedEvents.mightContain(eventId) && repo.existsByEventId(eventId)) {
+            duplicate(record, eventId);
+            return;
+        }
+        Prescription p = new Prescription();
+        p.setDossierId(event.dossierId());
+        p.setConsultationId(event.consultationId());
+        p.setMedicationDetails(event.medicationDetails());
+        p.setStatus("CREATED");
+        p.setEventId(eventId);
 
-        } catch (Exception e) {
-            log.error("Error processing prescription request", e);
+        try {
+            prescriptionService.create(p);
+        } catch (DataIntegrityViolationException e) {
+            // Not in the filter (e.g. after a restart) but already stored: the unique constraint caught it
+            if (eventId != null && repo.existsByEventId(eventId)) {
+                processedEvents.add(eventId);
+                duplicate(record, eventId);
+                return;
+            }
+            throw e;
         }
+        if (eventId != null) {
+            processedEvents.add(eventId);
+        }
+        log.debug("Prescription saved: {}", p.getId());
+    }
+
+    private void duplicate(ConsumerRecord<String, RequestEvent> record, String eventId) {
+        metrics.duplicate(LISTENER);
+        log.info("Skipping duplicate prescription event {} at {}-{}@{}", eventId, record.topic(), record.partition(),
+                record.offset());
+    }
+
+    // Seeds the filter with the latest event ids so redeliveries right after a restart stay on the fast path
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpFilter() {
+        jdbcTemplate.query("select event_id from prescription where event_id is not null order by id desc limit ?",
+                rs -> {
+                    processedEvents.add(rs.getString(1));
+                }, warmUp);
     }
 }
@@ -0,0 +1,104 @@
+package com.medinsight.ordonnance.event;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bloom filter of recently processed event ids. mightContain == false means the id was certainly
+ * not seen, so the consumer skips the database lookup; true means "check the database" (false
+ * positives at about ordonnance.dedup.false-positive-rate). Memory is bounded: two generations of
+ * ordonnance.dedup.capacity ids each; when the current one is full the older one is discarded, so
+ * ids from long ago only lose the fast path, never correctness (the unique constraint still holds).
+ * Lock-free; concurrent adds are safe, and a generation switch may lose the odd add, which again
+ * only costs a database lookup.
+ */
+@Component
+public class ProcessedEventFilter {
+
+    private final int capacity;
+    private final int bits;
+    private final int hashes;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    private final class Generation {
+        final AtomicLongArray words = new AtomicLongArray((bits + 63) >>> 6);
+        final AtomicInteger count = new AtomicInteger();
+
+        boolean contains(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(h1, h2, i);
+                if ((words.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void add(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                int bit = index(h1, h2, i);
+                long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(bit >>> 6);
+                } while ((word & mask) == 0 && !words.compareAndSet(bit >>> 6, word, word | mask));
+            }
+            count.incrementAndGet();
+        }
+    }
+
+    public ProcessedEventFilter(@Value("${ordonnance.dedup.capacity:1000000}") int capacity,
+            @Value("${ordonnance.dedup.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.capacity = capacity;
+        // Standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        this.bits = (int) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        this.current = new Generation();
+        this.previous = new Generation();
+    }
+
+    public boolean mightContain(String eventId) {
+        long h1 = hash(eventId, 0x9E3779B97F4A7C15L);
+        long h2 = hash(eventId, 0xC2B2AE3D27D4EB4FL);
+        return current.contains(h1, h2) || previous.contains(h1, h2);
+    }
+
+    public void add(String eventId) {
+        long h1 = hash(eventId, 0x9E3779B97F4A7C15L);
+        long h2 = hash(eventId, 0xC2B2AE3D27D4EB4FL);
+        Generation g = current;
+        if (g.count.get() >= capacity) {
+            synchronized (this) {
+                if (current == g) {
+                    previous = g;
+                    current = new Generation();
+                }
+            }
+            g = current;
+        }
+        g.add(h1, h2);
+    }
+
+    // Kirsch-Mitzenmacher: k indexes from two hashes
+    private int index(long h1, long h2, int i) {
+        return (int) Long.remainderUnsigned(h1 + i * h2, bits);
+    }
+
+    // 64-bit FNV-1a over the UTF-16 chars, seeded, with a final avalanche mix
+    private static long hash(String s, long seed) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,7 @@
+package com.medinsight.ordonnance.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.medinsight.ordonnance.domain.DossierPrescriptionSummary;
+
+public interface DossierPrescriptionSummaryRepository extends JpaRepository<DossierPrescriptionSummary, String> {
+}
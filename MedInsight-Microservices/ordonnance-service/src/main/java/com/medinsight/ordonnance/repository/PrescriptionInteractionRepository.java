@@ -0,0 +1,11 @@
+package com.medinsight.ordonnance.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.medinsight.ordonnance.domain.PrescriptionInteraction;
+
+import java.util.List;
+
+public interface PrescriptionInteractionRepository extends JpaRepository<PrescriptionInteraction, Long> {
+
+    List<PrescriptionInteraction> findByPrescriptionId(Long prescriptionId);
+}
@@ -0,0 +1,11 @@
+package com.medinsight.ordonnance.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import com.medinsight.ordonnance.domain.PrescriptionLine;
+
+import java.util.List;
+
+public interface PrescriptionLineRepository extends JpaRepository<PrescriptionLine, Long> {
+
+    List<PrescriptionLine> findByPrescriptionIdOrderByLineNo(Long prescriptionId);
+}
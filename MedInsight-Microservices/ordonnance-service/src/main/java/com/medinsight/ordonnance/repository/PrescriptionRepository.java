@@ -1,7 +1,28 @@
 package com.medinsight.ordonnance.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import com.medinsight.ordonnance.domain.Prescription;
 
+import java.util.List;
+
 public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
+
+    List<Prescription> findByDossierId(String dossierId);
+
+    boolean existsByEventId(String eventId);
+
+    // Conditional so two concurrent status changes cannot both count as ending the prescription
+    @Modifying(clearAutomatically = true)
+    @Query(value = "update prescription set status = :status, change_xid = pg_current_xact_id()::text::bigint "
+            + "where id = :id and status = 'CREATED'", nativeQuery = true)
+    int endIfActive(Long id, String status);
+
+    // Index lookup on prescription_line (drug_id, prescription_id), then primary-key reads
+    @Query("select p from Prescription p where p.id in "
+            + "(select l.prescriptionId from PrescriptionLine l where l.drugId = :drugId) "
+            + "and p.id > :after order by p.id")
+    List<Prescription> findByDrugId(int drugId, long after, Limit limit);
 }
@@ -0,0 +1,104 @@
+package com.medinsight.ordonnance.service;
+
+import com.medinsight.ordonnance.domain.DossierPrescriptionSummary;
+import com.medinsight.ordonnance.domain.Prescription;
+import com.medinsight.ordonnance.repository.DossierPrescriptionSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Total and active (CREATED) prescriptions per dossier in dossier_prescription_summary. Creating,
+ * ending and expiring a prescription update its dossier's row in the same transaction.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DossierPrescriptionSummaryService implements SmartInitializingSingleton {
+
+    static final String ACTIVE_STATUS = "CREATED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DossierPrescriptionSummaryRepository repo;
+    private final TransactionTemplate transactionTemplate;
+
+    public DossierPrescriptionSummary get(String dossierId) {
+        return repo.findById(dossierId).orElse(new DossierPrescriptionSummary(dossierId, 0, 0));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(Prescription prescription) {
+        if (prescription.getDossierId() == null) {
+            return;
+        }
+        jdbcTemplate.update("insert into dossier_prescription_summary "
+                + "(dossier_id, total_prescriptions, active_prescriptions) values (?, 1, ?) "
+                + "on conflict (dossier_id) do update set "
+                + "total_prescriptions = dossier_prescription_summary.total_prescriptions + 1, "
+                + "active_prescriptions = dossier_prescription_summary.active_prescriptions "
+                + "+ excluded.active_prescriptions",
+                prescription.getDossierId(), ACTIVE_STATUS.equals(prescription.getStatus()) ? 1 : 0);
+    }
+
+    // Prescriptions that just left CREATED; one decrement per dossier, in key order so writers lock alike
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordEnded(List<Prescription> prescriptions) {
+        Map<String, Integer> ended = new TreeMap<>();
+        for (Prescription p : prescriptions) {
+            if (p.getDossierId() != null) {
+                ended.merge(p.getDossierId(), 1, Integer::sum);
+            }
+        }
+        if (ended.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, Integer>> rows = new ArrayList<>(ended.entrySet());
+        jdbcTemplate.batchUpdate("update dossier_prescription_summary "
+                + "set active_prescriptions = active_prescriptions - ? where dossier_id = ?", rows, rows.size(),
+                (ps, e) -> {
+                    ps.setInt(1, e.getValue());
+                    ps.setString(2, e.getKey());
+                });
+    }
+
+    // Recount from prescription, e.g. after manual SQL; consumed prescriptions wait on the table lock meanwhile
+    @Scheduled(cron = "${ordonnance.summary.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        return transactionTemplate.execute(status -> rebuild());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (repo.count() == 0 && Boolean.TRUE.equals(
+                jdbcTemplate.queryForObject("select exists (select 1 from prescription)", Boolean.class))) {
+            reconcile();
+        }
+    }
+
+    private int rebuild() {
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("lock table prescription in share mode");
+        int dossiers = jdbcTemplate.update("insert into dossier_prescription_summary "
+                + "(dossier_id, total_prescriptions, active_prescriptions) "
+                + "select dossier_id, count(*), count(*) filter (where status = ?) from prescription "
+                + "where dossier_id is not null group by dossier_id "
+                + "on conflict (dossier_id) do update set total_prescriptions = excluded.total_prescriptions, "
+                + "active_prescriptions = excluded.active_prescriptions", ACTIVE_STATUS);
+        int removed = jdbcTemplate.update("delete from dossier_prescription_summary s where not exists "
+                + "(select 1 from prescription p where p.dossier_id = s.dossier_id)");
+        log.info("Dossier prescription summaries rebuilt: {} dossiers, {} stale rows removed in {} ms", dossiers,
+                removed, System.currentTimeMillis() - start);
+        return dossiers;
+    }
+}
@@ -0,0 +1,87 @@
+package com.medinsight.ordonnance.service;
+
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/*
+ * Immutable in-memory drug dictionary. Every drug has a compact id (Drug.id, stable across
+ * restarts) and is found by code, name or alias; names are matched after lower-casing and
+ * stripping accents, so "Amoxicilline" and "amoxicilline" are the same key.
+ */
+public final class DrugDictionary {
+
+    public record Entry(int id, String code, String name, List<String> aliases) {
+    }
+
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+    private final Map<Integer, Entry> byId;
+    private final Map<String, Entry> byCode;
+    private final Map<String, Entry> byName;
+    private final int maxNameWords;
+    private final int maxId;
+
+    public DrugDictionary(List<Entry> entries) {
+        Map<Integer, Entry> ids = new HashMap<>(entries.size() * 2);
+        Map<String, Entry> codes = new HashMap<>(entries.size() * 2);
+        Map<String, Entry> names = new HashMap<>(entries.size() * 4);
+        int words = 1;
+        int max = 0;
+        for (Entry e : entries) {
+            ids.put(e.id(), e);
+            max = Math.max(max, e.id());
+            codes.put(e.code().toUpperCase(Locale.ROOT), e);
+            for (String name : concat(e.name(), e.aliases())) {
+                String key = normalize(name);
+                names.putIfAbsent(key, e);
+                words = Math.max(words, key.split(" ").length);
+            }
+        }
+        this.byId = Map.copyOf(ids);
+        this.byCode = Map.copyOf(codes);
+        this.byName = Map.copyOf(names);
+        this.maxNameWords = words;
+        this.maxId = max;
+    }
+
+    public Entry byId(Integer id) {
+        return id != null ? byId.get(id) : null;
+    }
+
+    public Entry byCode(String code) {
+        return code != null ? byCode.get(code.toUpperCase(Locale.ROOT)) : null;
+    }
+
+    // Key must come from normalize()
+    public Entry byNormalizedName(String key) {
+        return byName.get(key);
+    }
+
+    // Longest multi-word drug name the parser has to try
+    public int maxNameWords() {
+        return maxNameWords;
+    }
+
+    // Ids are interned densely, so arrays indexed by id stay compact
+    public int maxId() {
+        return maxId;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public static String normalize(String text) {
+        String stripped = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return stripped.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    private static List<String> concat(String name, List<String> aliases) {
+        return Stream.concat(Stream.of(name), aliases.stream()).toList();
+    }
+}
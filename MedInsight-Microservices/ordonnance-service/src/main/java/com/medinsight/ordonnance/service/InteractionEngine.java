@@ -0,0 +1,109 @@
+package com.medinsight.ordonnance.service;
+
+import com.medinsight.ordonnance.domain.InteractionSeverity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Drug-drug interaction checks against a dossier's active medications: the InteractionMatrix in
+ * memory plus, per check, the drug ids of the dossier's active prescriptions read as flat primitive
+ * arrays. Those are read from the database every time, with one indexed query, because any replica
+ * may have created or ended one of them; a per-replica copy would miss those. A check is then
+ * (new drugs x active drugs) binary searches and allocates only for hits.
+ */
+public final class InteractionEngine {
+
+    // A prescription id is null for the prescription being checked (it is not stored yet)
+    public record Interaction(Long prescriptionId, int drugId, Long otherPrescriptionId, int otherDrugId,
+            InteractionSeverity severity) {
+    }
+
+    // Parallel arrays, one entry per (prescription, drug)
+    record ActiveMedications(long[] prescriptionIds, int[] drugIds) {
+
+        static final ActiveMedications EMPTY = new ActiveMedications(new long[0], new int[0]);
+    }
+
+    // CREATED and not past its last day, also before the nightly expire() has marked it EXPIRED
+    private static final String ACTIVE_SQL = "select distinct p.id, l.drug_id from prescription p "
+            + "join prescription_line l on l.prescription_id = p.id "
+            + "where p.dossier_id = ? and p.status = 'CREATED' "
+            + "and (p.active_until is null or p.active_until >= current_date) and l.drug_id is not null";
+
+    private final InteractionMatrix matrix;
+    private final JdbcTemplate jdbcTemplate;
+
+    public InteractionEngine(InteractionMatrix matrix, JdbcTemplate jdbcTemplate) {
+        this.matrix = matrix;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /*
+     * Interactions of drugIds (distinct Drug.ids of one prescription) among themselves and with the
+     * dossier's active ones. Called inside the creating transaction before the prescription is
+     * stored, so it is not checked against itself.
+     */
+    public List<Interaction> check(String dossierId, int[] drugIds) {
+        return check(load(dossierId), drugIds);
+    }
+
+    List<Interaction> check(ActiveMedications meds, int[] drugIds) {
+        List<Interaction> found = new ArrayList<>(0);
+        for (int i = 0; i < drugIds.length; i++) {
+            int drug = drugIds[i];
+            for (int j = i + 1; j < drugIds.length; j++) {
+                byte s = matrix.severity(drug, drugIds[j]);
+                if (s != 0) {
+                    found.add(new Interaction(null, drug, null, drugIds[j], InteractionSeverity.ofCode(s)));
+                }
+            }
+            int[] activeDrugs = meds.drugIds();
+            for (int k = 0; k < activeDrugs.length; k++) {
+                byte s = matrix.severity(drug, activeDrugs[k]);
+                if (s != 0) {
+                    found.add(new Interaction(null, drug, meds.prescriptionIds()[k], activeDrugs[k],
+                            InteractionSeverity.ofCode(s)));
+                }
+            }
+        }
+        return found;
+    }
+
+    // Every interacting pair among the dossier's active prescriptions, each pair once
+    public List<Interaction> activeInteractions(String dossierId) {
+        ActiveMedications meds = load(dossierId);
+        List<Interaction> found = new ArrayList<>(0);
+        int[] drugs = meds.drugIds();
+        for (int i = 0; i < drugs.length; i++) {
+            for (int j = i + 1; j < drugs.length; j++) {
+                byte s = matrix.severity(drugs[i], drugs[j]);
+                if (s != 0) {
+                    found.add(new Interaction(meds.prescriptionIds()[i], drugs[i], meds.prescriptionIds()[j],
+                            drugs[j], InteractionSeverity.ofCode(s)));
+                }
+            }
+        }
+        return found;
+    }
+
+    private ActiveMedications load(String dossierId) {
+        if (dossierId == null) {
+            return ActiveMedications.EMPTY;
+        }
+        List<Long> prescriptions = new ArrayList<>();
+        List<Integer> drugs = new ArrayList<>();
+        jdbcTemplate.query(ACTIVE_SQL, rs -> {
+            prescriptions.add(rs.getLong(1));
+            drugs.add(rs.getInt(2));
+        }, dossierId);
+        return prescriptions.isEmpty() ? ActiveMedications.EMPTY
+                : new ActiveMedications(prescriptions.stream().mapToLong(Long::longValue).toArray(),
+                        drugs.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    public String description(int drugId, int otherDrugId) {
+        return matrix.description(drugId, otherDrugId);
+    }
+}
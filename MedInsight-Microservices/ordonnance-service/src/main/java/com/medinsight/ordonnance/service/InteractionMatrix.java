@@ -0,0 +1,141 @@
+package com.medinsight.ordonnance.service;
+
+import java.util.Arrays;
+
+/*
+ * Immutable, symmetric drug-drug interaction matrix indexed by Drug.id. Interactions are sparse
+ * (a drug interacts with a few dozen others out of thousands), so instead of a dense n x n table the
+ * matrix is kept in compressed sparse rows: the partners of drug a are partners[rowStart[a] ..
+ * rowStart[a + 1]), sorted, with the severity code and description of each entry alongside. A lookup
+ * is a binary search over one row, with no boxing or hashing; memory is 4 bytes per drug plus about
+ * 13 bytes per entry (each pair is stored in both rows).
+ */
+public final class InteractionMatrix {
+
+    private final int[] rowStart;
+    private final int[] partners;
+    private final byte[] severities;
+    private final String[] descriptions;
+
+    private InteractionMatrix(int[] rowStart, int[] partners, byte[] severities, String[] descriptions) {
+        this.rowStart = rowStart;
+        this.partners = partners;
+        this.severities = severities;
+        this.descriptions = descriptions;
+    }
+
+    // Severity code (InteractionSeverity.code()) of the pair, 0 when the drugs do not interact
+    public byte severity(int a, int b) {
+        int e = find(a, b);
+        return e < 0 ? 0 : severities[e];
+    }
+
+    public String description(int a, int b) {
+        int e = find(a, b);
+        return e < 0 ? null : descriptions[e];
+    }
+
+    // Number of interacting pairs
+    public int pairs() {
+        return partners.length / 2;
+    }
+
+    private int find(int a, int b) {
+        if (a < 0 || a >= rowStart.length - 1) {
+            return -1;
+        }
+        int e = Arrays.binarySearch(partners, rowStart[a], rowStart[a + 1], b);
+        return e < 0 ? -1 : e;
+    }
+
+    public static Builder builder(int maxDrugId) {
+        return new Builder(maxDrugId);
+    }
+
+    public static final class Builder {
+        private final int maxDrugId;
+        private int[] as = new int[64];
+        private int[] bs = new int[64];
+        private byte[] codes = new byte[64];
+        private String[] texts = new String[64];
+        private int n;
+
+        private Builder(int maxDrugId) {
+            this.maxDrugId = maxDrugId;
+        }
+
+        // Each unordered pair once; severity is an InteractionSeverity.code()
+        public Builder add(int a, int b, byte severity, String description) {
+            if (a < 0 || b < 0 || a > maxDrugId || b > maxDrugId || a == b || severity <= 0) {
+                throw new IllegalArgumentException("Invalid interaction " + a + "-" + b + " (" + severity + ")");
+            }
+            if (n == as.length) {
+                as = Arrays.copyOf(as, n * 2);
+                bs = Arrays.copyOf(bs, n * 2);
+                codes = Arrays.copyOf(codes, n * 2);
+                texts = Arrays.copyOf(texts, n * 2);
+            }
+            as[n] = a;
+            bs[n] = b;
+            codes[n] = severity;
+            texts[n] = description;
+            n++;
+            return this;
+        }
+
+        public InteractionMatrix build() {
+            int[] rowStart = new int[maxDrugId + 2];
+            for (int i = 0; i < n; i++) {
+                rowStart[as[i] + 1]++;
+                rowStart[bs[i] + 1]++;
+            }
+            for (int r = 0; r <= maxDrugId; r++) {
+                rowStart[r + 1] += rowStart[r];
+            }
+            int[] partners = new int[2 * n];
+            byte[] severities = new byte[2 * n];
+            String[] descriptions = new String[2 * n];
+            int[] fill = Arrays.copyOf(rowStart, maxDrugId + 1);
+            for (int i = 0; i < n; i++) {
+                int e = fill[as[i]]++;
+                partners[e] = bs[i];
+                severities[e] = codes[i];
+                descriptions[e] = texts[i];
+                e = fill[bs[i]]++;
+                partners[e] = as[i];
+                severities[e] = codes[i];
+                descriptions[e] = texts[i];
+            }
+            for (int r = 0; r <= maxDrugId; r++) {
+                sortRow(r, rowStart[r], rowStart[r + 1], partners, severities, descriptions);
+            }
+            return new InteractionMatrix(rowStart, partners, severities, descriptions);
+        }
+
+        // Sorts one row by partner, carrying the payload along; (partner, position) packed in a long
+        private static void sortRow(int row, int from, int to, int[] partners, byte[] severities,
+                String[] descriptions) {
+            int len = to - from;
+            if (len < 2) {
+                return;
+            }
+            long[] keys = new long[len];
+            for (int k = 0; k < len; k++) {
+                keys[k] = (long) partners[from + k] << 32 | k;
+            }
+            Arrays.sort(keys);
+            int[] p = Arrays.copyOfRange(partners, from, to);
+            byte[] s = Arrays.copyOfRange(severities, from, to);
+            String[] d = Arrays.copyOfRange(descriptions, from, to);
+            for (int k = 0; k < len; k++) {
+                int src = (int) keys[k];
+                partners[from + k] = p[src];
+                severities[from + k] = s[src];
+                descriptions[from + k] = d[src];
+                if (k > 0 && partners[from + k] == partners[from + k - 1]) {
+                    throw new IllegalArgumentException("Duplicate interaction " + row + "-" + partners[from + k]);
+                }
+            }
+        }
+    }
+}
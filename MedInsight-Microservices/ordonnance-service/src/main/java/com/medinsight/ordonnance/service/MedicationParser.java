@@ -0,0 +1,122 @@
+package com.medinsight.ordonnance.service;
+
+import com.medinsight.ordonnance.domain.PrescriptionLine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Best-effort parser for free-text medication details, French or English:
+ *   "Doliprane 1 g 3 fois par jour pendant 5 jours; Amoxicilline 500mg bid x 7 days"
+ * Lines are split on ';', '+' and line breaks. In each line the first dictionary drug name wins
+ * (multi-word names first); dose, frequency and duration are read independently, so any of them
+ * may be missing. A line without a known drug keeps its raw text instead.
+ */
+@Component
+@RequiredArgsConstructor
+public class MedicationParser {
+
+    private static final Pattern LINE_SEPARATOR = Pattern.compile("[;\\n+]+");
+
+    private static final Pattern DOSE = Pattern.compile("(\\d+(?:[.,]\\d+)?)\\s*"
+            + "(mg|g|mcg|µg|ug|ml|ui|iu|gouttes?|drops?|cp|comprimes?|tablets?|gel(?:ules?)?)\\b");
+
+    // "3x/j", "3 fois par jour", "2 times a day", "1 cp/jour"
+    private static final Pattern TIMES_PER_DAY = Pattern.compile(
+            "(\\d+)\\s*(?:x|fois|times?|cp|comprimes?|tablets?)?\\s*(?:/|par|per|a|an)\\s*(?:j|jour|day|d)\\b");
+    private static final Pattern EVERY_HOURS = Pattern.compile(
+            "\\b(?:every|toutes les|q)\\s*(\\d+)\\s*(?:h|hours?|heures?)\\b");
+    private static final Pattern NAMED_FREQUENCY = Pattern.compile(
+            "\\b(once|twice|thrice) (?:a )?(?:day|daily)\\b|\\b(od|qd|bid|tid|qid|daily)\\b");
+    private static final Map<String, Double> NAMED_TIMES = Map.of(
+            "once", 1.0, "twice", 2.0, "thrice", 3.0,
+            "od", 1.0, "qd", 1.0, "daily", 1.0, "bid", 2.0, "tid", 3.0, "qid", 4.0);
+
+    private static final Pattern DURATION = Pattern.compile(
+            "(\\d+)\\s*(days?|jours?|j|d|weeks?|semaines?|sem|months?|mois)\\b");
+
+    private final DrugDictionary dictionary;
+
+    public List<PrescriptionLine> parse(String medicationDetails) {
+        List<PrescriptionLine> lines = new ArrayList<>();
+        if (medicationDetails == null) {
+            return lines;
+        }
+        int lineNo = 0;
+        for (String raw : LINE_SEPARATOR.split(medicationDetails)) {
+            if (!raw.isBlank()) {
+                lines.add(parseLine(raw.trim(), ++lineNo));
+            }
+        }
+        return lines;
+    }
+
+    private PrescriptionLine parseLine(String raw, int lineNo) {
+        // Blank out each match so e.g. the "3" of "3 fois par jour" is not read again as a duration
+        StringBuilder text = new StringBuilder(DrugDictionary.normalize(raw));
+        PrescriptionLine line = new PrescriptionLine();
+        line.setLineNo(lineNo);
+
+        DrugDictionary.Entry drug = findDrug(text.toString());
+        if (drug != null) {
+            line.setDrugId(drug.id());
+        } else {
+            line.setUnparsedText(raw);
+        }
+
+        Matcher m = TIMES_PER_DAY.matcher(text);
+        if (m.find()) {
+            line.setTimesPerDay(Double.valueOf(m.group(1)));
+            blank(text, m);
+        } else if ((m = EVERY_HOURS.matcher(text)).find() && Integer.parseInt(m.group(1)) > 0) {
+            line.setTimesPerDay(24.0 / Integer.parseInt(m.group(1)));
+            blank(text, m);
+        } else if ((m = NAMED_FREQUENCY.matcher(text)).find()) {
+            line.setTimesPerDay(NAMED_TIMES.get(m.group(1) != null ? m.group(1) : m.group(2)));
+            blank(text, m);
+        }
+
+        m = DOSE.matcher(text);
+        if (m.find()) {
+            line.setDoseAmount(Double.valueOf(m.group(1).replace(',', '.')));
+            line.setDoseUnit(m.group(2).toUpperCase(Locale.ROOT));
+            blank(text, m);
+        }
+
+        m = DURATION.matcher(text);
+        if (m.find()) {
+            int n = Integer.parseInt(m.group(1));
+            String unit = m.group(2);
+            line.setDurationDays(unit.startsWith("w") || unit.startsWith("sem") ? n * 7
+                    : unit.startsWith("mo") ? n * 30
+                    : n);
+        }
+        return line;
+    }
+
+    private DrugDictionary.Entry findDrug(String text) {
+        List<String> words = Arrays.asList(text.split("[\\s,.:()]+"));
+        for (int i = 0; i < words.size(); i++) {
+            for (int n = Math.min(dictionary.maxNameWords(), words.size() - i); n >= 1; n--) {
+                DrugDictionary.Entry e = dictionary.byNormalizedName(String.join(" ", words.subList(i, i + n)));
+                if (e != null) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void blank(StringBuilder text, Matcher m) {
+        for (int i = m.start(); i < m.end(); i++) {
+            text.setCharAt(i, ' ');
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.medinsight.ordonnance.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/*
+ * Streams prescriptions from a server-side cursor (Postgres only uses one inside a transaction with
+ * a fetch size), so an export of any size holds one fetch of rows in memory.
+ * Deltas go by change_xid, the transaction that last wrote a row, not by id: ids are taken before
+ * commit, so a lower id can become visible after a higher one was already exported. The watermark
+ * is the oldest transaction still running; everything below it has finished, so
+ * "since <= change_xid < watermark" is final and the next export starts where this one ended.
+ * A delta holds new prescriptions and status changes alike; consumers upsert by id.
+ */
+@Service
+@Slf4j
+public class PrescriptionExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String[] COLUMNS = { "id", "dossierId", "consultationId", "medicationDetails", "status" };
+
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper objectMapper;
+
+    public PrescriptionExportService(DataSource dataSource, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper, @Value("${ordonnance.export.fetch-size:1000}") int fetchSize) {
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(fetchSize);
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    // Oldest transaction still in progress; fixed before streaming so the next export can start from it
+    public long watermark() {
+        return cursor.queryForObject("select pg_snapshot_xmin(pg_current_snapshot())::text::bigint", Long.class);
+    }
+
+    // Writes prescriptions last written by since <= change_xid < upTo, optionally only those in statuses;
+    // returns the row count
+    public long export(OutputStream out, Format format, List<String> statuses, long since, long upTo) {
+        StringBuilder sql = new StringBuilder("select id, dossier_id, consultation_id, medication_details, status "
+                + "from prescription where change_xid >= ? and change_xid < ?");
+        Object[] args = statuses == null || statuses.isEmpty()
+                ? new Object[] { since, upTo }
+                : new Object[] { since, upTo, statuses.toArray(String[]::new) };
+        if (args.length == 3) {
+            sql.append(" and status = any(?)");
+        }
+        sql.append(" order by id");
+
+        long rows = readOnly.execute(status -> {
+            try {
+                return format == Format.CSV ? writeCsv(out, sql.toString(), args)
+                        : writeNdjson(out, sql.toString(), args);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exported {} prescriptions ({}, transactions [{}..{}))", rows, format, since, upTo);
+        return rows;
+    }
+
+    private long writeCsv(OutputStream out, String sql, Object[] args) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write(String.join(",", COLUMNS));
+        writer.write("\r\n");
+        long[] rows = new long[1];
+        cursor.query(sql, rs -> {
+            try {
+                for (int c = 1; c <= COLUMNS.length; c++) {
+                    if (c > 1) {
+                        writer.write(',');
+                    }
+                    writeCsvField(writer, rs.getString(c));
+                }
+                writer.write("\r\n");
+                rows[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, args);
+        writer.flush();
+        return rows[0];
+    }
+
+    // RFC 4180: quote fields holding a separator, quote or line break, doubling inner quotes; null is empty
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char ch = value.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private long writeNdjson(OutputStream out, String sql, Object[] args) throws IOException {
+        long[] rows = new long[1];
+        // Not closed: the caller owns out (and may still have to finish a gzip trailer)
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.setRootValueSeparator(null);
+        cursor.query(sql, rs -> {
+            try {
+                writeJsonRow(json, rs);
+                rows[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, args);
+        json.flush();
+        return rows[0];
+    }
+
+    private static void writeJsonRow(JsonGenerator json, ResultSet rs) throws IOException, SQLException {
+        json.writeStartObject();
+        json.writeNumberField(COLUMNS[0], rs.getLong(1));
+        for (int c = 2; c <= COLUMNS.length; c++) {
+            json.writeStringField(COLUMNS[c - 1], rs.getString(c));
+        }
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
@@ -0,0 +1,106 @@
+package com.medinsight.ordonnance.service;
+
+import com.medinsight.ordonnance.domain.InteractionSeverity;
+import com.medinsight.ordonnance.domain.Prescription;
+import com.medinsight.ordonnance.domain.PrescriptionInteraction;
+import com.medinsight.ordonnance.domain.PrescriptionLine;
+import com.medinsight.ordonnance.repository.PrescriptionInteractionRepository;
+import com.medinsight.ordonnance.repository.PrescriptionLineRepository;
+import com.medinsight.ordonnance.repository.PrescriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PrescriptionService {
+
+    private final PrescriptionRepository prescriptionRepository;
+    private final PrescriptionLineRepository lineRepository;
+    private final PrescriptionInteractionRepository interactionRepository;
+    private final MedicationParser medicationParser;
+    private final InteractionEngine interactionEngine;
+    private final DossierPrescriptionSummaryService summaries;
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * The prescription, its structured lines, its interaction flags and its dossier's counters commit
+     * together. Interactions are checked before anything is stored; records of one dossier are
+     * consumed one at a time, so no other prescription of the dossier is being created meanwhile.
+     */
+    @Transactional
+    public Prescription create(Prescription prescription) {
+        List<PrescriptionLine> lines = medicationParser.parse(prescription.getMedicationDetails());
+        int[] drugIds = lines.stream().map(PrescriptionLine::getDrugId).filter(Objects::nonNull)
+                .mapToInt(Integer::intValue).distinct().toArray();
+        List<InteractionEngine.Interaction> interactions =
+                interactionEngine.check(prescription.getDossierId(), drugIds);
+
+        prescription.setActiveUntil(activeUntil(lines));
+        Prescription saved = prescriptionRepository.save(prescription);
+        summaries.recordCreated(saved);
+        lines.forEach(l -> l.setPrescriptionId(saved.getId()));
+        lineRepository.saveAll(lines);
+        if (!interactions.isEmpty()) {
+            interactionRepository.saveAll(interactions.stream().map(i -> new PrescriptionInteraction(null,
+                    saved.getId(), i.otherPrescriptionId() != null ? i.otherPrescriptionId() : saved.getId(),
+                    i.drugId(), i.otherDrugId(), i.severity())).toList());
+            InteractionSeverity worst = interactions.stream().map(InteractionEngine.Interaction::severity)
+                    .max(Enum::compareTo).orElseThrow();
+            log.warn("Prescription {} for dossier {}: {} drug interaction(s), worst {}", saved.getId(),
+                    saved.getDossierId(), interactions.size(), worst);
+        }
+        return saved;
+    }
+
+    // Ends an active prescription (COMPLETED, CANCELLED); empty when there is no such prescription
+    @Transactional
+    public Optional<Prescription> end(Long id, String status) {
+        if (prescriptionRepository.endIfActive(id, status) == 0) {
+            // Unknown, or already ended: nothing to count
+            return prescriptionRepository.findById(id);
+        }
+        Prescription ended = prescriptionRepository.findById(id).orElseThrow();
+        summaries.recordEnded(List.of(ended));
+        return Optional.of(ended);
+    }
+
+    // Prescriptions past their last day of treatment become EXPIRED
+    @Scheduled(cron = "${ordonnance.prescriptions.expire-cron:0 15 0 * * *}")
+    @Transactional
+    public int expire() {
+        List<Prescription> expired = jdbcTemplate.query("update prescription set status = 'EXPIRED', "
+                + "change_xid = pg_current_xact_id()::text::bigint where status = 'CREATED' and active_until < current_date returning id, dossier_id", (rs, i) -> {
+                    Prescription p = new Prescription();
+                    p.setId(rs.getLong(1));
+                    p.setDossierId(rs.getString(2));
+                    return p;
+                });
+        summaries.recordEnded(expired);
+        log.info("{} prescriptions expired", expired.size());
+        return expired.size();
+    }
+
+    // Only when every drug line states how long it lasts
+    private static LocalDate activeUntil(List<PrescriptionLine> lines) {
+        int days = 0;
+        for (PrescriptionLine l : lines) {
+            if (l.getDrugId() != null) {
+                if (l.getDurationDays() == null) {
+                    return null;
+                }
+                days = Math.max(days, l.getDurationDays());
+            }
+        }
+        return days > 0 ? LocalDate.now().plusDays(days - 1) : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.medinsight.ordonnance.web;
+
+import com.medinsight.ordonnance.domain.InteractionSeverity;
+import com.medinsight.ordonnance.service.DrugDictionary;
+import com.medinsight.ordonnance.service.InteractionEngine;
+
+// One interacting drug pair, drug ids resolved back to codes and names
+public record InteractionView(Long prescriptionId, String drugCode, String drugName, Long otherPrescriptionId,
+        String otherDrugCode, String otherDrugName, InteractionSeverity severity, String description) {
+
+    public static InteractionView of(Long prescriptionId, int drugId, Long otherPrescriptionId, int otherDrugId,
+            InteractionSeverity severity, DrugDictionary dictionary, InteractionEngine engine) {
+        DrugDictionary.Entry drug = dictionary.byId(drugId);
+        DrugDictionary.Entry other = dictionary.byId(otherDrugId);
+        return new InteractionView(prescriptionId, drug != null ? drug.code() : null,
+                drug != null ? drug.name() : null, otherPrescriptionId, other != null ? other.code() : null,
+                other != null ? other.name() : null, severity, engine.description(drugId, otherDrugId));
+    }
+
+    public static InteractionView of(InteractionEngine.Interaction i, DrugDictionary dictionary,
+            InteractionEngine engine) {
+        return of(i.prescriptionId(), i.drugId(), i.otherPrescriptionId(), i.otherDrugId(), i.severity(),
+                dictionary, engine);
+    }
+}
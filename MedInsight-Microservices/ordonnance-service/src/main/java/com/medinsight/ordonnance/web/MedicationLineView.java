@@ -0,0 +1,16 @@
+package com.medinsight.ordonnance.web;
+
+import com.medinsight.ordonnance.domain.PrescriptionLine;
+import com.medinsight.ordonnance.service.DrugDictionary;
+
+// PrescriptionLine with its interned drug id resolved back to code and name
+public record MedicationLineView(int lineNo, String drugCode, String drugName, Double doseAmount, String doseUnit,
+        Double timesPerDay, Integer durationDays, String unparsedText) {
+
+    public static MedicationLineView of(PrescriptionLine line, DrugDictionary dictionary) {
+        DrugDictionary.Entry drug = dictionary.byId(line.getDrugId());
+        return new MedicationLineView(line.getLineNo(), drug != null ? drug.code() : null,
+                drug != null ? drug.name() : null, line.getDoseAmount(), line.getDoseUnit(), line.getTimesPerDay(),
+                line.getDurationDays(), line.getUnparsedText());
+    }
+}
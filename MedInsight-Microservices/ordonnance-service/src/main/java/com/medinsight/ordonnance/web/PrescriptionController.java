@@ -2,12 +2,34 @@ package com.medinsight.ordonnance.web;
 
 import org.springframework.web.bind.annotation.*;
 import com.medinsight.ordonnance.domain.Prescription;
+import com.medinsight.ordonnance.repository.PrescriptionInteractionRepository;
+import com.medinsight.ordonnance.repository.PrescriptionLineRepository;
 import com.medinsight.ordonnance.repository.PrescriptionRepository;
+import com.medinsight.ordonnance.service.DossierPrescriptionSummaryService;
+import com.medinsight.ordonnance.service.DrugDictionary;
+import com.medinsight.ordonnance.service.InteractionEngine;
+import com.medinsight.ordonnance.service.PrescriptionExportService;
+import com.medinsight.ordonnance.service.PrescriptionService;
+import com.medinsight.messaging.consumer.DeadLetterReplayer;
+import com.medinsight.messaging.consumer.RetryRouter;
+import com.medinsight.messaging.contract.PrescriptionRequestedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import com.medinsight.ordonnance.security.UserContext;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 @RestController
@@ -16,6 +38,19 @@ import org.springframework.http.ResponseEntity;
 public class PrescriptionController {
 
     private final PrescriptionRepository repo;
+    private final RetryRouter retryRouter;
+    private final DeadLetterReplayer deadLetterReplayer;
+    private final PrescriptionLineRepository lineRepository;
+    private final DrugDictionary drugDictionary;
+    private final PrescriptionInteractionRepository interactionRepository;
+    private final InteractionEngine interactionEngine;
+    private final PrescriptionExportService exportService;
+    private final DossierPrescriptionSummaryService summaries;
+    private final PrescriptionService prescriptionService;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Set<String> ENDED_STATUSES = Set.of("COMPLETED", "CANCELLED");
 
     @GetMapping
     public ResponseEntity<?> getAll() {
@@ -25,6 +60,154 @@ public class PrescriptionController {
         return ResponseEntity.ok(repo.findAll());
     }
 
+    @GetMapping(params = "dossierId")
+    public ResponseEntity<?> getByDossier(@RequestParam String dossierId) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        return ResponseEntity.ok(repo.findByDossierId(dossierId));
+    }
+
+    // Every prescription containing a drug (ATC code from the drug dictionary), keyset-paged
+    @GetMapping(params = "drugCode")
+    public ResponseEntity<?> getByDrug(@RequestParam String drugCode, @RequestParam(defaultValue = "0") long after,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        DrugDictionary.Entry drug = drugDictionary.byCode(drugCode);
+        if (drug == null) {
+            return ResponseEntity.badRequest().body("Unknown drug code " + drugCode);
+        }
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<Prescription> items = repo.findByDrugId(drug.id(), after, Limit.of(size));
+        Long nextCursor = items.size() < size ? null : items.get(items.size() - 1).getId();
+        return ResponseEntity.ok(new PrescriptionPage(items, nextCursor));
+    }
+
+    // Structured medication lines parsed from medicationDetails
+    @GetMapping("/{id}/lines")
+    public ResponseEntity<?> getLines(@PathVariable Long id) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        return ResponseEntity.ok(lineRepository.findByPrescriptionIdOrderByLineNo(id).stream()
+                .map(l -> MedicationLineView.of(l, drugDictionary))
+                .toList());
+    }
+
+    // Prescription counts of one dossier, read from the incrementally maintained dossier_prescription_summary
+    @GetMapping("/summary")
+    public ResponseEntity<?> getSummary(@RequestParam String dossierId) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        return ResponseEntity.ok(summaries.get(dossierId));
+    }
+
+    // Rebuilds every dossier summary from prescription (also runs nightly, ordonnance.summary.reconcile-cron)
+    @PostMapping("/summary/reconcile")
+    public ResponseEntity<?> reconcileSummaries() {
+        if (!UserContext.getCurrent().hasRole("ordonnance:admin")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:admin");
+        }
+        return ResponseEntity.ok(Map.of("dossiers", summaries.reconcile()));
+    }
+
+    // Interactions flagged when the prescription was consumed
+    @GetMapping("/{id}/interactions")
+    public ResponseEntity<?> getInteractions(@PathVariable Long id) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        return ResponseEntity.ok(interactionRepository.findByPrescriptionId(id).stream()
+                .map(i -> InteractionView.of(i.getPrescriptionId(), i.getDrugId(), i.getOtherPrescriptionId(),
+                        i.getOtherDrugId(), i.getSeverity(), drugDictionary, interactionEngine))
+                .toList());
+    }
+
+    // Interactions among the dossier's active prescriptions; with drugCode, checks those drugs against them
+    // instead (e.g. before prescribing)
+    @GetMapping("/interactions")
+    public ResponseEntity<?> checkInteractions(@RequestParam String dossierId,
+            @RequestParam(required = false) List<String> drugCode) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        if (drugCode == null || drugCode.isEmpty()) {
+            return ResponseEntity.ok(interactionEngine.activeInteractions(dossierId).stream()
+                    .map(i -> InteractionView.of(i, drugDictionary, interactionEngine))
+                    .toList());
+        }
+        List<Integer> drugIds = new ArrayList<>();
+        for (String code : drugCode) {
+            DrugDictionary.Entry drug = drugDictionary.byCode(code);
+            if (drug == null) {
+                return ResponseEntity.badRequest().body("Unknown drug code " + code);
+            }
+            drugIds.add(drug.id());
+        }
+        return ResponseEntity.ok(interactionEngine.check(dossierId,
+                        drugIds.stream().mapToInt(Integer::intValue).distinct().toArray()).stream()
+                .map(i -> InteractionView.of(i, drugDictionary, interactionEngine))
+                .toList());
+    }
+
+    /*
+     * Bulk export for pharmacy systems, streamed as CSV or NDJSON (gzip when the client accepts it).
+     * Passing the X-Export-Watermark header back as since on the next export returns only the
+     * prescriptions stored or changed in between (see PrescriptionExportService).
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> export(@RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) List<String> status, @RequestParam(defaultValue = "0") long since,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:read");
+        }
+        PrescriptionExportService.Format exportFormat;
+        try {
+            exportFormat = PrescriptionExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unknown export format " + format + " (csv or ndjson)");
+        }
+        long watermark = exportService.watermark();
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            exportService.export(target, exportFormat, status, since, watermark);
+            if (target instanceof GZIPOutputStream compressed) {
+                compressed.finish();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat == PrescriptionExportService.Format.CSV
+                        ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"prescriptions-" + since + "-"
+                        + watermark + "." + exportFormat.name().toLowerCase(Locale.ROOT) + "\"")
+                .header("X-Export-Watermark", Long.toString(watermark))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    // Ends an active prescription so it leaves the dossier's interaction checks and active count
+    @PatchMapping("/{id}/status")
+    public ResponseEntity<?> changeStatus(@PathVariable Long id, @RequestParam String status) {
+        if (!UserContext.getCurrent().hasRole("ordonnance:write")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:write");
+        }
+        String target = status.toUpperCase(Locale.ROOT);
+        if (!ENDED_STATUSES.contains(target)) {
+            return ResponseEntity.badRequest().body("Unknown status " + status + " (COMPLETED or CANCELLED)");
+        }
+        return prescriptionService.end(id, target).<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getById(@PathVariable Long id) {
         if (!UserContext.getCurrent().hasRole("ordonnance:read")) {
@@ -32,4 +215,14 @@ public class PrescriptionController {
         }
         return ResponseEntity.ok(repo.findById(id).orElse(null));
     }
+
+    // Republishes up to max dead letters to the request topic, e.g. once the cause of the failures is fixed
+    @PostMapping("/dlq/replay")
+    public ResponseEntity<?> replayDeadLetters(@RequestParam(defaultValue = "1000") int max) throws Exception {
+        if (!UserContext.getCurrent().hasRole("ordonnance:admin")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role ordonnance:admin");
+        }
+        int replayed = deadLetterReplayer.replay(retryRouter.dltTopic(PrescriptionRequestedEvent.TOPIC), Math.max(1, max));
+        return ResponseEntity.ok(Map.of("replayed", replayed));
+    }
 }
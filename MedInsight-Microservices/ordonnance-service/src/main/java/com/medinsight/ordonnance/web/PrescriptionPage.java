@@ -0,0 +1,9 @@
+package com.medinsight.ordonnance.web;
+
+import com.medinsight.ordonnance.domain.Prescription;
+
+import java.util.List;
+
+// One keyset page; nextCursor is null on the last page
+public record PrescriptionPage(List<Prescription> items, Long nextCursor) {
+}
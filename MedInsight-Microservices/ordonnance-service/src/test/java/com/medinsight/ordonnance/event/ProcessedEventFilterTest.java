@@ -0,0 +1,91 @@
+package com.medinsight.ordonnance.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProcessedEventFilterTest {
+
+    @Test
+    void addedIdsAreAlwaysFound() {
+        ProcessedEventFilter filter = new ProcessedEventFilter(10_000, 0.01);
+        List<String> ids = ids("seen-", 10_000);
+
+        ids.forEach(filter::add);
+
+        assertThat(ids).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositivesStayNearTheConfiguredRate() {
+        ProcessedEventFilter filter = new ProcessedEventFilter(10_000, 0.01);
+        ids("seen-", 10_000).forEach(filter::add);
+
+        long falsePositives = ids("unseen-", 100_000).stream().filter(filter::mightContain).count();
+
+        // 1% configured, measured over 100k unseen ids with the filter at capacity
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+
+    @Test
+    void previousGenerationIsKeptUntilTheNextSwitch() {
+        ProcessedEventFilter filter = new ProcessedEventFilter(1_000, 0.01);
+        List<String> first = ids("first-", 1_000);
+        List<String> second = ids("second-", 1_000);
+
+        first.forEach(filter::add);
+        // Fills a second generation; the first one is now the previous generation
+        second.forEach(filter::add);
+
+        assertThat(first).allMatch(filter::mightContain);
+        assertThat(second).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void oldestGenerationIsDiscardedWhenTheCurrentOneIsFull() {
+        ProcessedEventFilter filter = new ProcessedEventFilter(1_000, 0.01);
+        List<String> first = ids("first-", 1_000);
+        List<String> second = ids("second-", 1_000);
+
+        first.forEach(filter::add);
+        second.forEach(filter::add);
+        filter.add("third-0");
+
+        // Only false positives (against two generations) can still answer true for the first ids
+        assertThat(first.stream().filter(filter::mightContain).count()).isLessThan(50);
+        assertThat(second).allMatch(filter::mightContain);
+        assertThat(filter.mightContain("third-0")).isTrue();
+    }
+
+    @Test
+    void concurrentAddsAreNotLost() throws Exception {
+        ProcessedEventFilter filter = new ProcessedEventFilter(100_000, 0.01);
+        List<String> ids = ids("event-", 40_000);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                List<String> slice = ids.subList(t * 10_000, (t + 1) * 10_000);
+                done.add(pool.submit(() -> slice.forEach(filter::add)));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertThat(ids).allMatch(filter::mightContain);
+    }
+
+    private static List<String> ids(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i).toList();
+    }
+}
@@ -0,0 +1,96 @@
+package com.medinsight.ordonnance.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Consume-path interaction check at dictionary sizes from a national formulary (5k drugs) to a full
+ * international one (20k), with 20 to 200 interacting partners per drug (DrugBank-like density);
+ * synthetic, uniformly random pairs. Each call checks a 3-drug prescription against one of 4096
+ * dossiers holding activeDrugs active drugs, so lookups are not served from a single hot row. The
+ * indexed read of those active drugs is left out: this measures the matrix side only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class InteractionEngineBenchmark {
+
+    private static final int DOSSIERS = 4096;
+    private static final int NEW_DRUGS = 3;
+
+    @Param({"5000", "20000"})
+    public int drugs;
+
+    @Param({"20", "200"})
+    public int partnersPerDrug;
+
+    @Param({"5", "15"})
+    public int activeDrugs;
+
+    private InteractionMatrix matrix;
+    private InteractionEngine engine;
+    private InteractionEngine.ActiveMedications[] dossiers;
+    private int[][] prescriptions;
+    private int next;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(42);
+        InteractionMatrix.Builder builder = InteractionMatrix.builder(drugs);
+        BitSet seen = new BitSet();
+        long pairs = (long) drugs * partnersPerDrug / 2;
+        for (long added = 0; added < pairs; ) {
+            int a = 1 + random.nextInt(drugs);
+            int b = 1 + random.nextInt(drugs);
+            int lo = Math.min(a, b);
+            int hi = Math.max(a, b);
+            int key = (int) ((long) lo * (drugs + 1) + hi);
+            if (a != b && !seen.get(key)) {
+                seen.set(key);
+                builder.add(a, b, (byte) (1 + random.nextInt(4)), "synthetic");
+                added++;
+            }
+        }
+        matrix = builder.build();
+
+        engine = new InteractionEngine(matrix, null);
+        dossiers = new InteractionEngine.ActiveMedications[DOSSIERS];
+        prescriptions = new int[DOSSIERS][];
+        for (int d = 0; d < DOSSIERS; d++) {
+            long[] prescriptionIds = new long[activeDrugs];
+            Arrays.fill(prescriptionIds, d);
+            dossiers[d] = new InteractionEngine.ActiveMedications(prescriptionIds, randomDrugs(random, activeDrugs));
+            prescriptions[d] = randomDrugs(random, NEW_DRUGS);
+        }
+    }
+
+    private int[] randomDrugs(SplittableRandom random, int n) {
+        return random.ints(1, drugs + 1).distinct().limit(n).toArray();
+    }
+
+    @Benchmark
+    public List<InteractionEngine.Interaction> checkPrescription() {
+        int d = next++ & (DOSSIERS - 1);
+        return engine.check(dossiers[d], prescriptions[d]);
+    }
+
+    @Benchmark
+    public byte pairLookup() {
+        int[] p = prescriptions[next++ & (DOSSIERS - 1)];
+        return matrix.severity(p[0], p[1]);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(InteractionEngineBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.medinsight.ordonnance.service;
+
+import com.medinsight.ordonnance.domain.InteractionSeverity;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class InteractionEngineTest {
+
+    private static final int ASPIRIN = 1;
+    private static final int WARFARIN = 2;
+    private static final int IBUPROFEN = 3;
+    private static final int PARACETAMOL = 4;
+
+    private record ActiveLine(String dossierId, long prescriptionId, int drugId) {
+    }
+
+    // Committed, active prescription lines as every replica reads them
+    private final List<ActiveLine> table = new ArrayList<>();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InteractionMatrix matrix = InteractionMatrix.builder(4)
+            .add(ASPIRIN, WARFARIN, InteractionSeverity.MAJOR.code(), "bleeding")
+            .add(WARFARIN, IBUPROFEN, InteractionSeverity.MODERATE.code(), "bleeding")
+            .build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            String dossierId = call.getArgument(2);
+            for (ActiveLine line : List.copyOf(table)) {
+                if (line.dossierId().equals(dossierId)) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong(1)).thenReturn(line.prescriptionId());
+                    when(rs.getInt(2)).thenReturn(line.drugId());
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), ArgumentMatchers.<Object>any());
+    }
+
+    @Test
+    void prescriptionStoredThroughOneReplicaIsCheckedOnAnother() {
+        InteractionEngine replicaA = new InteractionEngine(matrix, jdbcTemplate);
+        InteractionEngine replicaB = new InteractionEngine(matrix, jdbcTemplate);
+
+        assertThat(replicaA.check("d-1", new int[] { WARFARIN })).isEmpty();
+        table.add(new ActiveLine("d-1", 10, WARFARIN));
+
+        assertThat(replicaB.check("d-1", new int[] { ASPIRIN })).containsExactly(
+                new InteractionEngine.Interaction(null, ASPIRIN, 10L, WARFARIN, InteractionSeverity.MAJOR));
+
+        // Ended on replica A: replica B stops flagging it as well
+        table.clear();
+        assertThat(replicaB.check("d-1", new int[] { ASPIRIN })).isEmpty();
+    }
+
+    @Test
+    void newDrugsAreCheckedAmongThemselves() {
+        JdbcTemplate unused = mock(JdbcTemplate.class);
+        InteractionEngine engine = new InteractionEngine(matrix, unused);
+
+        assertThat(engine.check((String) null, new int[] { ASPIRIN, PARACETAMOL, WARFARIN })).containsExactly(
+                new InteractionEngine.Interaction(null, ASPIRIN, null, WARFARIN, InteractionSeverity.MAJOR));
+        verifyNoInteractions(unused);
+    }
+
+    @Test
+    void otherDossiersAreNotCheckedAgainst() {
+        table.add(new ActiveLine("d-2", 20, WARFARIN));
+
+        assertThat(new InteractionEngine(matrix, jdbcTemplate).check("d-1", new int[] { ASPIRIN })).isEmpty();
+    }
+
+    @Test
+    void activeInteractionsListEachPairOnce() {
+        table.add(new ActiveLine("d-1", 10, ASPIRIN));
+        table.add(new ActiveLine("d-1", 11, WARFARIN));
+        table.add(new ActiveLine("d-1", 11, IBUPROFEN));
+        table.add(new ActiveLine("d-1", 12, PARACETAMOL));
+
+        assertThat(new InteractionEngine(matrix, jdbcTemplate).activeInteractions("d-1")).containsExactly(
+                new InteractionEngine.Interaction(10L, ASPIRIN, 11L, WARFARIN, InteractionSeverity.MAJOR),
+                new InteractionEngine.Interaction(11L, WARFARIN, 11L, IBUPROFEN, InteractionSeverity.MODERATE));
+    }
+}
@@ -0,0 +1,94 @@
+package com.medinsight.ordonnance.service;
+
+import com.medinsight.ordonnance.domain.PrescriptionLine;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MedicationParserTest {
+
+    private static final int PARACETAMOL = 1;
+    private static final int ASPIRIN = 2;
+    private static final int IBUPROFEN = 3;
+    private static final int AMOXICILLIN = 4;
+
+    private final MedicationParser parser = new MedicationParser(new DrugDictionary(List.of(
+            new DrugDictionary.Entry(PARACETAMOL, "N02BE01", "Paracetamol", List.of("doliprane")),
+            new DrugDictionary.Entry(ASPIRIN, "N02BA01", "Acetylsalicylic acid",
+                    List.of("aspirine", "acide acetylsalicylique")),
+            new DrugDictionary.Entry(IBUPROFEN, "M01AE01", "Ibuprofen", List.of("ibuprofene")),
+            new DrugDictionary.Entry(AMOXICILLIN, "J01CA04", "Amoxicillin", List.of("amoxicilline")))));
+
+    @Test
+    void parsesFrenchAndEnglishLines() {
+        List<PrescriptionLine> lines = parser.parse(
+                "Doliprane 1 g 3 fois par jour pendant 5 jours; Amoxicilline 500mg bid x 7 days");
+
+        assertThat(lines).hasSize(2);
+        assertLine(lines.get(0), 1, PARACETAMOL, 1.0, "G", 3.0, 5);
+        assertLine(lines.get(1), 2, AMOXICILLIN, 500.0, "MG", 2.0, 7);
+    }
+
+    @Test
+    void matchesMultiWordNamesAndConvertsWeeks() {
+        PrescriptionLine line = parser.parse("Acide acétylsalicylique 100 mg once daily 2 semaines").get(0);
+
+        assertLine(line, 1, ASPIRIN, 100.0, "MG", 1.0, 14);
+    }
+
+    @Test
+    void readsIntervalsAndDecimalCommas() {
+        PrescriptionLine line = parser.parse("IBUPROFÈNE 0,4 g toutes les 8 heures").get(0);
+
+        assertLine(line, 1, IBUPROFEN, 0.4, "G", 3.0, null);
+    }
+
+    @Test
+    void frequencyIsNotReadAgainAsDuration() {
+        PrescriptionLine line = parser.parse("Doliprane 3 fois par jour").get(0);
+
+        assertThat(line.getTimesPerDay()).isEqualTo(3.0);
+        assertThat(line.getDurationDays()).isNull();
+        assertThat(line.getDoseAmount()).isNull();
+    }
+
+    @Test
+    void unknownDrugKeepsItsText() {
+        PrescriptionLine line = parser.parse("Vitamine X 2 cp/jour").get(0);
+
+        assertThat(line.getDrugId()).isNull();
+        assertThat(line.getUnparsedText()).isEqualTo("Vitamine X 2 cp/jour");
+        assertThat(line.getTimesPerDay()).isEqualTo(2.0);
+    }
+
+    @Test
+    void knownDrugDropsItsText() {
+        assertThat(parser.parse("Doliprane 1 g").get(0).getUnparsedText()).isNull();
+    }
+
+    @Test
+    void splitsOnEverySeparatorAndSkipsBlankLines() {
+        List<PrescriptionLine> lines = parser.parse("Doliprane 1 g\n\n ; Aspirine 100 mg + Amoxicilline 1 g;");
+
+        assertThat(lines).extracting(PrescriptionLine::getLineNo).containsExactly(1, 2, 3);
+        assertThat(lines).extracting(PrescriptionLine::getDrugId).containsExactly(PARACETAMOL, ASPIRIN, AMOXICILLIN);
+    }
+
+    @Test
+    void nothingToParse() {
+        assertThat(parser.parse(null)).isEmpty();
+        assertThat(parser.parse("  ;\n")).isEmpty();
+    }
+
+    private static void assertLine(PrescriptionLine line, int lineNo, Integer drugId, Double dose, String unit,
+            Double timesPerDay, Integer durationDays) {
+        assertThat(line.getLineNo()).isEqualTo(lineNo);
+        assertThat(line.getDrugId()).isEqualTo(drugId);
+        assertThat(line.getDoseAmount()).isEqualTo(dose);
+        assertThat(line.getDoseUnit()).isEqualTo(unit);
+        assertThat(line.getTimesPerDay()).isEqualTo(timesPerDay);
+        assertThat(line.getDurationDays()).isEqualTo(durationDays);
+    }
+}
@@ -0,0 +1,163 @@
+package com.medinsight.ordonnance.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrescriptionExportServiceTest {
+
+    // One prescription row and the transaction that last wrote it; only committed rows are visible
+    private static final class Row {
+        final long id;
+        final String medication;
+        final String status;
+        final long changeXid;
+        boolean committed;
+
+        Row(long id, String medication, String status, long changeXid) {
+            this.id = id;
+            this.medication = medication;
+            this.status = status;
+            this.changeXid = changeXid;
+        }
+    }
+
+    private final List<Row> table = new ArrayList<>();
+    private final List<String> queries = new ArrayList<>();
+    private long nextXid = 10;
+    private PrescriptionExportService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        // watermark(): like pg_snapshot_xmin, the oldest transaction still running, else the next one
+        Statement statement = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenAnswer(call -> resultSet(List.<Object[]>of(new Object[] {
+                table.stream().filter(r -> !r.committed).mapToLong(r -> r.changeXid).min().orElse(nextXid) })));
+        when(connection.prepareStatement(anyString())).thenAnswer(call -> export(call.getArgument(0)));
+        service = new PrescriptionExportService(dataSource, mock(PlatformTransactionManager.class),
+                new ObjectMapper(), 1000);
+    }
+
+    @Test
+    void lowerIdCommittingLateIsExportedByTheNextDelta() {
+        Row first = write(1, "AMOXICILLINE 1g", "CREATED");
+        Row second = write(2, "DOLIPRANE 1g", "CREATED");
+        second.committed = true;
+
+        // id 1 is still being written: the watermark stops below it, so id 2 waits as well
+        long watermark = service.watermark();
+        assertThat(ndjsonIds(0, watermark)).isEmpty();
+
+        first.committed = true;
+        long next = service.watermark();
+        assertThat(ndjsonIds(watermark, next)).containsExactly(1L, 2L);
+        assertThat(ndjsonIds(next, service.watermark())).isEmpty();
+        assertThat(queries).allMatch(sql -> sql.contains("change_xid >= ? and change_xid < ?"));
+    }
+
+    @Test
+    void statusChangeIsExportedAgainInTheDeltaOfItsTransaction() {
+        write(1, "AMOXICILLINE 1g", "CREATED").committed = true;
+        long watermark = service.watermark();
+        assertThat(ndjsonIds(0, watermark)).containsExactly(1L);
+
+        table.clear();
+        write(1, "AMOXICILLINE 1g", "CANCELLED").committed = true;
+
+        assertThat(ndjsonIds(watermark, service.watermark())).containsExactly(1L);
+    }
+
+    @Test
+    void csvQuotesFieldsAndFiltersByStatus() {
+        write(1, "DOLIPRANE 1g, 3x/day \"if pain\"\nfor 5 days", "CREATED").committed = true;
+        write(2, "AMOXICILLINE 1g", "CANCELLED").committed = true;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = service.export(out, PrescriptionExportService.Format.CSV, List.of("CREATED"), 0,
+                service.watermark());
+
+        assertThat(rows).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,dossierId,consultationId,medicationDetails,status\r\n"
+                        + "1,d-1,c-1,\"DOLIPRANE 1g, 3x/day \"\"if pain\"\"\nfor 5 days\",CREATED\r\n");
+    }
+
+    private Row write(long id, String medication, String status) {
+        Row row = new Row(id, medication, status, nextXid++);
+        table.add(row);
+        return row;
+    }
+
+    private List<Long> ndjsonIds(long since, long upTo) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(out, PrescriptionExportService.Format.NDJSON, null, since, upTo);
+        return out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> line.substring("{\"id\":".length(), line.indexOf(',')))
+                .map(Long::valueOf)
+                .toList();
+    }
+
+    // The export query over the visible rows: since <= change_xid < upTo [and status = any(statuses)], by id
+    private PreparedStatement export(String sql) throws SQLException {
+        queries.add(sql);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        Map<Integer, Object> args = new HashMap<>();
+        doAnswer(call -> args.put(call.getArgument(0), call.getArgument(1))).when(ps).setObject(anyInt(), any());
+        when(ps.executeQuery()).thenAnswer(call -> {
+            long since = (Long) args.get(1);
+            long upTo = (Long) args.get(2);
+            List<String> statuses = args.containsKey(3) ? Arrays.asList((String[]) args.get(3)) : null;
+            return resultSet(table.stream()
+                    .filter(r -> r.committed && r.changeXid >= since && r.changeXid < upTo)
+                    .filter(r -> statuses == null || statuses.contains(r.status))
+                    .sorted(Comparator.comparingLong(r -> r.id))
+                    .map(r -> new Object[] { r.id, "d-1", "c-1", r.medication, r.status })
+                    .toList());
+        });
+        return ps;
+    }
+
+    private static ResultSet resultSet(List<Object[]> rows) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        AtomicInteger current = new AtomicInteger(-1);
+        when(rs.next()).thenAnswer(call -> current.incrementAndGet() < rows.size());
+        when(rs.getString(anyInt())).thenAnswer(call -> String.valueOf(rows.get(current.get())[
+                (int) call.getArgument(0) - 1]));
+        when(rs.getLong(anyInt())).thenAnswer(call -> ((Number) rows.get(current.get())[
+                (int) call.getArgument(0) - 1]).longValue());
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(rows.isEmpty() ? 0 : rows.get(0).length);
+        when(rs.getMetaData()).thenReturn(metaData);
+        return rs;
+    }
+}
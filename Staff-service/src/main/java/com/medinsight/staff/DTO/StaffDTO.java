@@ -1,5 +1,6 @@
 package com.medinsight.staff.DTO;
 
+import com.medinsight.staff.entities.ProvisioningStatus;
 import com.medinsight.staff.entities.StaffType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -26,4 +27,7 @@ public class StaffDTO {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String keycloakId; // nouvel attribut
+    // Lecture seule : état du compte Keycloak, créé de façon asynchrone
+    private ProvisioningStatus provisioningStatus;
+    private String provisioningError;
 }
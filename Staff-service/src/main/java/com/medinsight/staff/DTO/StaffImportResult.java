@@ -0,0 +1,31 @@
+package com.medinsight.staff.DTO;
+
+import com.medinsight.staff.entities.ProvisioningStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Résultat d'une ligne d'import (une ligne NDJSON de la réponse de POST /staffs/import)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class StaffImportResult {
+
+    public enum Status {
+        CREATED,    // inséré ; voir provisioningStatus pour le compte Keycloak
+        DUPLICATE,  // email ou numéro de licence déjà utilisé (en base ou plus haut dans le fichier)
+        INVALID,    // ligne illisible ou champ obligatoire manquant
+        ERROR       // échec de l'insertion
+    }
+
+    private int row;        // numéro de l'enregistrement dans le fichier, à partir de 1
+    private String email;
+    private Status status;
+    private Long id;
+    private ProvisioningStatus provisioningStatus;
+    private String message;
+}
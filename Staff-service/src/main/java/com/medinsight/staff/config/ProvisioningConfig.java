@@ -0,0 +1,26 @@
+package com.medinsight.staff.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ProvisioningConfig {
+
+    // Borne le nombre d'appels Keycloak simultanés (créations unitaires et imports) ; si la file est
+    // pleine la tâche est refusée, le staff reste PENDING et le poller de StaffProvisioningService le reprendra
+    @Bean
+    public ThreadPoolTaskExecutor provisioningExecutor(
+            @Value("${staff.provisioning.concurrency:4}") int concurrency,
+            @Value("${staff.provisioning.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("keycloak-provisioning-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
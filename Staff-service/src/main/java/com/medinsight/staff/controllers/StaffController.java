@@ -1,16 +1,26 @@
 package com.medinsight.staff.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.medinsight.staff.DTO.StaffDTO;
+import com.medinsight.staff.services.StaffImportService;
 import com.medinsight.staff.services.Staffservice;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.medinsight.staff.security.UserContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -21,6 +31,8 @@ import java.util.List;
 public class StaffController {
     @Autowired
     private final Staffservice staffService;
+    private final StaffImportService staffImportService;
+    private final ObjectMapper objectMapper;
 
     // POST: Créer un nouveau staff
     @PostMapping
@@ -33,6 +45,35 @@ public class StaffController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdStaff);
     }
 
+    // POST: Import en masse (CSV avec en-tête, tableau JSON ou NDJSON de StaffDTO)
+    // La réponse est un flux NDJSON d'un StaffImportResult par ligne, envoyé lot par lot
+    @PostMapping(value = "/import",
+            consumes = { "text/csv", MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> importStaff(HttpServletRequest request,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType) {
+        log.info("Requête POST: Import en masse de staffs ({})", contentType);
+        if (!UserContext.getCurrent().hasRole("staff:write")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role staff:write");
+        }
+        StaffImportService.Format format = contentType.isCompatibleWith(MediaType.valueOf("text/csv"))
+                ? StaffImportService.Format.CSV
+                : StaffImportService.Format.JSON;
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                staffImportService.importStaff(request.getInputStream(), format, result -> {
+                    try {
+                        writer.write(result);
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     // GET: Récupérer tous les staffs
     @GetMapping
     public ResponseEntity<?> getAllStaff() {
@@ -44,6 +85,16 @@ public class StaffController {
         return ResponseEntity.ok(staffs);
     }
 
+    // POST: Relancer le provisioning Keycloak d'un staff en échec (provisioningStatus FAILED)
+    @PostMapping("/{id}/provisioning/retry")
+    public ResponseEntity<?> retryProvisioning(@PathVariable Long id) {
+        log.info("Requête POST: Relance du provisioning Keycloak du staff avec ID: {}", id);
+        if (!UserContext.getCurrent().hasRole("staff:write")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body("Access Denied: Required role staff:write");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(staffService.retryProvisioning(id));
+    }
+
     // GET: Récupérer les staffs actifs
     @GetMapping("/actifs")
     public ResponseEntity<List<StaffDTO>> getActiveStaff() {
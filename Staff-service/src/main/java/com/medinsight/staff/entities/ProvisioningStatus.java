@@ -0,0 +1,9 @@
+package com.medinsight.staff.entities;
+
+// Avancement de la création du compte Keycloak d'un staff (voir StaffProvisioningService)
+public enum ProvisioningStatus {
+    PENDING,       // compte Keycloak pas encore créé
+    USER_CREATED,  // utilisateur créé, rôle pas encore attribué
+    PROVISIONED,   // utilisateur créé et rôle attribué
+    FAILED         // abandonné après staff.provisioning.max-attempts essais
+}
@@ -19,10 +19,15 @@ import java.time.LocalDateTime;
 @Builder
 public class Staff {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Générateur en table avec pool de 50 ids (MySQL n'a pas de séquences) : avec IDENTITY, Hibernate
+    // doit exécuter chaque INSERT pour connaître l'id et ne peut pas les regrouper en batch JDBC
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "staff_id")
+    @TableGenerator(name = "staff_id", table = "id_generator", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "staff", allocationSize = 50)
     private Long id;
 
-    @Column(name = "keycloak_id", unique = true)
+    // Renseigné par StaffProvisioningService uniquement : jamais écrasé par un save() de l'entité
+    @Column(name = "keycloak_id", unique = true, updatable = false)
     private String keycloakId; // <- nouvel attribut
 
     @NotBlank(message = "Le nom est obligatoire")
@@ -60,6 +65,21 @@ public class Staff {
     @Column(name = "date_embauche", nullable = false)
     private LocalDateTime dateEmbauche;
 
+    // État du provisioning Keycloak, mis à jour par StaffProvisioningService via des UPDATE ciblés
+    @Enumerated(EnumType.STRING)
+    @Column(name = "provisioning_status", nullable = false, length = 20, updatable = false)
+    private ProvisioningStatus provisioningStatus;
+
+    @Column(name = "provisioning_attempts", nullable = false, updatable = false)
+    private int provisioningAttempts;
+
+    // Prochain essai (ou fin du bail de l'instance qui traite le staff)
+    @Column(name = "provisioning_next_attempt_at", updatable = false)
+    private LocalDateTime provisioningNextAttemptAt;
+
+    @Column(name = "provisioning_error", length = 500, updatable = false)
+    private String provisioningError;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
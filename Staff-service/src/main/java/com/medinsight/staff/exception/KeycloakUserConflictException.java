@@ -0,0 +1,8 @@
+package com.medinsight.staff.exception;
+
+// Un utilisateur Keycloak porte déjà ce nom et n'a pas été créé pour ce staff : ne jamais le réutiliser
+public class KeycloakUserConflictException extends RuntimeException {
+    public KeycloakUserConflictException(String message) {
+        super(message);
+    }
+}
@@ -2,7 +2,13 @@ package com.medinsight.staff.repositories;
 
 import com.medinsight.staff.entities.Staff;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,4 +20,58 @@ public interface StaffRepositoy extends JpaRepository<Staff, Long> {
     List<Staff> findByActif(Boolean actif);
 
     List<Staff> findByNumeroLicence(String numeroLicence);
+
+    // Import en masse : emails et licences déjà pris parmi ceux d'un lot, en une requête
+    @Query("SELECT s.email, s.numeroLicence FROM Staff s WHERE s.email IN :emails OR s.numeroLicence IN :licences")
+    List<Object[]> findTakenEmailsAndLicences(@Param("emails") Collection<String> emails,
+            @Param("licences") Collection<String> licences);
+
+    @Query("SELECT s.email, s.numeroLicence FROM Staff s WHERE s.email IN :emails")
+    List<Object[]> findTakenEmails(@Param("emails") Collection<String> emails);
+
+    // ---- Provisioning Keycloak : UPDATE ciblés, chacun dans sa propre transaction courte ----
+
+    @Query(value = "SELECT id FROM staff WHERE provisioning_status IN ('PENDING', 'USER_CREATED') "
+            + "AND provisioning_next_attempt_at <= :now ORDER BY provisioning_next_attempt_at LIMIT :limit",
+            nativeQuery = true)
+    List<Long> findDueForProvisioning(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Prend le staff pour leaseUntil ; 0 si une autre instance (ou un autre thread) l'a déjà pris
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE staff SET provisioning_next_attempt_at = :leaseUntil WHERE id = :id "
+            + "AND provisioning_status IN ('PENDING', 'USER_CREATED') AND provisioning_next_attempt_at <= :now",
+            nativeQuery = true)
+    int claimProvisioning(@Param("id") Long id, @Param("now") LocalDateTime now,
+            @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE staff SET keycloak_id = :keycloakId, provisioning_status = 'USER_CREATED' WHERE id = :id",
+            nativeQuery = true)
+    int markKeycloakUserCreated(@Param("id") Long id, @Param("keycloakId") String keycloakId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE staff SET provisioning_status = 'PROVISIONED', provisioning_error = NULL, "
+            + "provisioning_next_attempt_at = NULL WHERE id = :id", nativeQuery = true)
+    int markProvisioned(@Param("id") Long id);
+
+    // status : PENDING / USER_CREATED (nouvel essai à nextAttemptAt) ou FAILED (abandon)
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE staff SET provisioning_status = :status, provisioning_attempts = provisioning_attempts + 1, "
+            + "provisioning_error = :error, provisioning_next_attempt_at = :nextAttemptAt WHERE id = :id",
+            nativeQuery = true)
+    int markProvisioningFailed(@Param("id") Long id, @Param("status") String status, @Param("error") String error,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    // Relance manuelle d'un staff FAILED, à partir de l'étape où il s'était arrêté
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE staff SET provisioning_status = CASE WHEN keycloak_id IS NULL THEN 'PENDING' "
+            + "ELSE 'USER_CREATED' END, provisioning_attempts = 0, provisioning_error = NULL, "
+            + "provisioning_next_attempt_at = :now WHERE id = :id AND provisioning_status = 'FAILED'",
+            nativeQuery = true)
+    int retryProvisioning(@Param("id") Long id, @Param("now") LocalDateTime now);
 }
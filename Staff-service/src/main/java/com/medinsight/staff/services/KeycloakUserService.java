@@ -9,10 +9,12 @@ import org.keycloak.admin.client.resource.RealmResource;
 import org.keycloak.representations.idm.CredentialRepresentation;
 import org.keycloak.representations.idm.RoleRepresentation;
 import org.springframework.stereotype.Service;
+import com.medinsight.staff.exception.KeycloakUserConflictException;
 import org.keycloak.representations.idm.UserRepresentation;
 
 import java.net.URI;
 import java.util.Collections;
+import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
 import jakarta.annotation.PostConstruct;
@@ -45,12 +47,16 @@ public class KeycloakUserService {
                 .build();
     }
 
-    public String createUser(String username, String email, String password) {
+    // Attribut posé à la création : prouve qu'un utilisateur a été créé pour ce staff
+    static final String STAFF_ID_ATTRIBUTE = "staffId";
+
+    public String createUser(String username, String email, String password, Long staffId) {
 
         UserRepresentation user = new UserRepresentation();
         user.setUsername(username);
         user.setEmail(email);
         user.setEnabled(true);
+        user.singleAttribute(STAFF_ID_ATTRIBUTE, String.valueOf(staffId));
 
         CredentialRepresentation credential = new CredentialRepresentation();
         credential.setTemporary(false);
@@ -63,6 +69,12 @@ public class KeycloakUserService {
                 .users()
                 .create(user);
 
+        // 409 : l'utilisateur existe déjà. Réutilisé seulement s'il a été créé pour ce staff par un essai
+        // précédent dont la réponse a été perdue ; sinon c'est le compte de quelqu'un d'autre
+        if (response.getStatus() == 409) {
+            response.close();
+            return findOwnUserId(username, staffId);
+        }
         if (response.getStatus() != 201) {
             throw new RuntimeException("Erreur création user Keycloak");
         }
@@ -71,6 +83,25 @@ public class KeycloakUserService {
         return userId;
     }
 
+    private String findOwnUserId(String username, Long staffId) {
+        List<UserRepresentation> users = keycloak.realm("microservices-realm")
+                .users()
+                .searchByUsername(username, true);
+        if (users.isEmpty()) {
+            throw new RuntimeException("Erreur création user Keycloak : conflit sans utilisateur " + username);
+        }
+        // La recherche renvoie une représentation abrégée, sans attributs
+        UserRepresentation existing = keycloak.realm("microservices-realm")
+                .users()
+                .get(users.get(0).getId())
+                .toRepresentation();
+        if (!String.valueOf(staffId).equals(existing.firstAttribute(STAFF_ID_ATTRIBUTE))) {
+            throw new KeycloakUserConflictException("Utilisateur Keycloak " + username
+                    + " déjà existant et non créé pour le staff " + staffId);
+        }
+        return existing.getId();
+    }
+
     private String extractId(Response response) {
         URI location = response.getLocation();
         return location.getPath().replaceAll(".*/([^/]+)$", "$1");
@@ -0,0 +1,397 @@
+package com.medinsight.staff.services;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medinsight.staff.DTO.StaffDTO;
+import com.medinsight.staff.DTO.StaffImportResult;
+import com.medinsight.staff.entities.ProvisioningStatus;
+import com.medinsight.staff.entities.Staff;
+import com.medinsight.staff.entities.StaffType;
+import com.medinsight.staff.repositories.StaffRepositoy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/*
+ * Import en masse de staffs (CSV ou JSON), lu enregistrement par enregistrement et traité par lots
+ * de staff.import.chunk-size :
+ *   - unicité email / numéro de licence vérifiée en une seule requête par lot (plus les doublons
+ *     à l'intérieur du lot) ;
+ *   - INSERT en batch JDBC, une transaction par lot ; si le lot échoue (p. ex. création concurrente
+ *     du même email), reprise ligne par ligne ;
+ *   - comptes Keycloak créés après le commit du lot via StaffProvisioningService, avec au plus
+ *     staff.provisioning.concurrency appels simultanés ; ceux qui ne sont pas finis au bout de
+ *     staff.import.provisioning-timeout-ms restent PENDING et sont terminés par le poller.
+ * Chaque ligne produit un StaffImportResult, dans l'ordre du fichier.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StaffImportService {
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    // Enregistrement lu : dto null si illisible (error dit pourquoi)
+    private record Row(int row, StaffDTO dto, String error) {
+    }
+
+    private final StaffRepositoy staffRepository;
+    private final Staffservice staffService;
+    private final StaffProvisioningService provisioningService;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+
+    @Value("${staff.import.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${staff.import.provisioning-timeout-ms:120000}")
+    private long provisioningTimeoutMs;
+
+    public void importStaff(InputStream in, Format format, Consumer<StaffImportResult> onResult) throws IOException {
+        RowSource source = format == Format.CSV ? new CsvSource(in) : new JsonSource(in);
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        int created = 0;
+        int total = 0;
+        Row row;
+        while ((row = source.next(total + 1)) != null) {
+            total++;
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                created += applyChunk(chunk, onResult);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            created += applyChunk(chunk, onResult);
+        }
+        log.info("Import de staffs terminé : {} lignes, {} créées", total, created);
+    }
+
+    private int applyChunk(List<Row> rows, Consumer<StaffImportResult> onResult) {
+        StaffImportResult[] results = new StaffImportResult[rows.size()];
+        Map<Integer, Staff> candidates = new HashMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            Row row = rows.get(i);
+            if (row.dto() == null) {
+                results[i] = result(row, StaffImportResult.Status.INVALID, null, row.error());
+                continue;
+            }
+            Staff staff = staffService.toEntity(row.dto());
+            staff.setId(null);
+            staff.setActif(staff.getActif() != null ? staff.getActif() : Boolean.TRUE);
+            staff.setProvisioningStatus(ProvisioningStatus.PENDING);
+            staff.setProvisioningNextAttemptAt(LocalDateTime.now());
+            Set<ConstraintViolation<Staff>> violations = validator.validate(staff);
+            if (!violations.isEmpty()) {
+                results[i] = result(row, StaffImportResult.Status.INVALID, null, violations.stream()
+                        .map(v -> v.getPropertyPath() + " : " + v.getMessage()).sorted()
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+            candidates.put(i, staff);
+        }
+        rejectDuplicates(rows, candidates, results);
+
+        List<Integer> inserted = insert(rows, candidates, results);
+        List<Long> ids = inserted.stream().map(i -> candidates.get(i).getId()).toList();
+        awaitProvisioning(ids);
+        Map<Long, Staff> reloaded = staffRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Staff::getId, s -> s));
+        for (int i : inserted) {
+            Staff staff = reloaded.get(candidates.get(i).getId());
+            results[i] = StaffImportResult.builder()
+                    .row(rows.get(i).row())
+                    .email(candidates.get(i).getEmail())
+                    .status(StaffImportResult.Status.CREATED)
+                    .id(candidates.get(i).getId())
+                    .provisioningStatus(staff != null ? staff.getProvisioningStatus() : ProvisioningStatus.PENDING)
+                    .message(staff != null ? staff.getProvisioningError() : null)
+                    .build();
+        }
+        for (StaffImportResult r : results) {
+            onResult.accept(r);
+        }
+        return inserted.size();
+    }
+
+    // Une requête pour tout le lot ; emails comparés sans casse comme le fait la collation MySQL
+    private void rejectDuplicates(List<Row> rows, Map<Integer, Staff> candidates, StaffImportResult[] results) {
+        if (candidates.isEmpty()) {
+            return;
+        }
+        Set<String> emails = new HashSet<>();
+        Set<String> licences = new HashSet<>();
+        for (Staff s : candidates.values()) {
+            emails.add(s.getEmail());
+            if (s.getNumeroLicence() != null) {
+                licences.add(s.getNumeroLicence());
+            }
+        }
+        List<Object[]> taken = licences.isEmpty()
+                ? staffRepository.findTakenEmails(emails)
+                : staffRepository.findTakenEmailsAndLicences(emails, licences);
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenLicences = new HashSet<>();
+        for (Object[] t : taken) {
+            takenEmails.add(((String) t[0]).toLowerCase(Locale.ROOT));
+            if (t[1] != null) {
+                takenLicences.add(((String) t[1]).toLowerCase(Locale.ROOT));
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            Staff s = candidates.get(i);
+            if (s == null) {
+                continue;
+            }
+            String email = s.getEmail().toLowerCase(Locale.ROOT);
+            String licence = s.getNumeroLicence() != null ? s.getNumeroLicence().toLowerCase(Locale.ROOT) : null;
+            String reason = !takenEmails.add(email) ? "Un staff avec cet email existe déjà"
+                    : licence != null && !takenLicences.add(licence) ? "Un staff avec ce numéro de licence existe déjà"
+                    : null;
+            if (reason != null) {
+                candidates.remove(i);
+                results[i] = result(rows.get(i), StaffImportResult.Status.DUPLICATE, null, reason);
+            }
+        }
+    }
+
+    // Indices (dans le lot) des lignes insérées
+    private List<Integer> insert(List<Row> rows, Map<Integer, Staff> candidates, StaffImportResult[] results) {
+        List<Integer> indexes = candidates.keySet().stream().sorted().toList();
+        if (indexes.isEmpty()) {
+            return indexes;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    staffRepository.saveAll(indexes.stream().map(candidates::get).toList()));
+            return indexes;
+        } catch (Exception e) {
+            log.warn("Insertion en batch de {} staffs en échec, reprise ligne par ligne", indexes.size(), e);
+        }
+        List<Integer> inserted = new ArrayList<>(indexes.size());
+        for (int i : indexes) {
+            Staff staff = candidates.get(i);
+            staff.setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status -> staffRepository.save(staff));
+                inserted.add(i);
+            } catch (DataIntegrityViolationException e) {
+                results[i] = result(rows.get(i), StaffImportResult.Status.DUPLICATE, null,
+                        "Email ou numéro de licence déjà utilisé");
+            } catch (Exception e) {
+                log.error("Insertion du staff {} (ligne {}) en échec", staff.getEmail(), rows.get(i).row(), e);
+                results[i] = result(rows.get(i), StaffImportResult.Status.ERROR, null, e.getMessage());
+            }
+        }
+        return inserted;
+    }
+
+    private void awaitProvisioning(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            provisioningService.provisionAll(ids).get(provisioningTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Provisioning de {} staffs importés non terminé après {} ms, laissé au poller", ids.size(),
+                    provisioningTimeoutMs);
+        } catch (ExecutionException e) {
+            // provision() gère ses erreurs lui-même : l'état de chaque staff est relu ensuite
+            log.warn("Provisioning des staffs importés en échec", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrompu", e);
+        }
+    }
+
+    private static StaffImportResult result(Row row, StaffImportResult.Status status, Long id, String message) {
+        return StaffImportResult.builder()
+                .row(row.row())
+                .email(row.dto() != null ? row.dto().getEmail() : null)
+                .status(status)
+                .id(id)
+                .message(message)
+                .build();
+    }
+
+    private interface RowSource {
+        // null en fin de fichier
+        Row next(int rowNo) throws IOException;
+    }
+
+    // Tableau JSON de StaffDTO, ou objets à la suite (NDJSON)
+    private final class JsonSource implements RowSource {
+        private final MappingIterator<StaffDTO> values;
+
+        JsonSource(InputStream in) throws IOException {
+            this.values = objectMapper.readerFor(StaffDTO.class).readValues(in);
+        }
+
+        @Override
+        public Row next(int rowNo) throws IOException {
+            try {
+                if (!values.hasNextValue()) {
+                    return null;
+                }
+                return new Row(rowNo, values.nextValue(), null);
+            } catch (JsonParseException e) {
+                // JSON mal formé : impossible de retrouver la ligne suivante
+                throw e;
+            } catch (JsonMappingException e) {
+                return new Row(rowNo, null, e.getOriginalMessage());
+            }
+        }
+    }
+
+    /*
+     * CSV RFC 4180 avec ligne d'en-tête obligatoire nommant les colonnes comme StaffDTO :
+     * nom,prenom,email,telephone,type,specialite,numeroLicence,actif,dateEmbauche (ordre libre,
+     * colonnes inconnues ignorées). dateEmbauche : 2024-03-01 ou 2024-03-01T08:00:00.
+     */
+    private static final class CsvSource implements RowSource {
+        private final Reader reader;
+        private Map<String, Integer> columns;
+        private boolean eof;
+
+        CsvSource(InputStream in) {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public Row next(int rowNo) throws IOException {
+            if (columns == null) {
+                List<String> header = readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim(), i);
+                }
+            }
+            List<String> fields;
+            do {
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+            try {
+                return new Row(rowNo, toDto(fields), null);
+            } catch (RuntimeException e) {
+                return new Row(rowNo, null, e.getMessage());
+            }
+        }
+
+        private StaffDTO toDto(List<String> fields) {
+            String type = field(fields, "type");
+            String actif = field(fields, "actif");
+            String dateEmbauche = field(fields, "dateEmbauche");
+            return StaffDTO.builder()
+                    .nom(field(fields, "nom"))
+                    .prenom(field(fields, "prenom"))
+                    .email(field(fields, "email"))
+                    .telephone(field(fields, "telephone"))
+                    .type(type != null ? staffType(type) : null)
+                    .specialite(field(fields, "specialite"))
+                    .numeroLicence(field(fields, "numeroLicence"))
+                    .actif(actif != null ? Boolean.valueOf(actif) : null)
+                    .dateEmbauche(dateEmbauche == null ? null
+                            : dateEmbauche.length() <= 10 ? LocalDate.parse(dateEmbauche).atStartOfDay()
+                            : LocalDateTime.parse(dateEmbauche))
+                    .build();
+        }
+
+        private static StaffType staffType(String type) {
+            try {
+                return StaffType.valueOf(type.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Type de staff inconnu : " + type);
+            }
+        }
+
+        // Champ vide = absent
+        private String field(List<String> fields, String name) {
+            Integer i = columns.get(name);
+            if (i == null || i >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(i).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private List<String> readRecord() throws IOException {
+            if (eof) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = reader.read()) != -1) {
+                any = true;
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            eof = true;
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.medinsight.staff.services;
+
+import com.medinsight.staff.entities.ProvisioningStatus;
+import com.medinsight.staff.entities.Staff;
+import com.medinsight.staff.entities.StaffType;
+import com.medinsight.staff.exception.KeycloakUserConflictException;
+import com.medinsight.staff.repositories.StaffRepositoy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/*
+ * Création asynchrone des comptes Keycloak des staffs. createStaff() n'insère que la ligne
+ * (provisioning_status = PENDING) ; le compte est créé ici, hors de toute transaction, pour ne pas
+ * garder une connexion MySQL pendant les appels Keycloak.
+ *   - déclenchement immédiat après le commit (provisionAfterCommit), plus un poller qui reprend
+ *     les staffs dus (nouvel essai, file pleine, redémarrage) ;
+ *   - chaque staff est d'abord "pris" par un UPDATE conditionnel qui pose un bail : une seule
+ *     instance le traite, et s'il y a crash il redevient dû à la fin du bail ;
+ *   - en cas d'erreur : nouvel essai avec backoff exponentiel, FAILED après max-attempts essais ;
+ *   - les étapes sont rejouables : USER_CREATED évite de recréer l'utilisateur, et un utilisateur
+ *     déjà présent dans Keycloak (409) n'est réutilisé que s'il porte l'attribut staffId de ce staff ;
+ *     sinon le staff passe directement en FAILED.
+ */
+@Service
+@Slf4j
+public class StaffProvisioningService {
+
+    private static final List<ProvisioningStatus> IN_PROGRESS =
+            List.of(ProvisioningStatus.PENDING, ProvisioningStatus.USER_CREATED);
+
+    private final StaffRepositoy staffRepository;
+    private final KeycloakUserService keycloakUserService;
+    private final ThreadPoolTaskExecutor executor;
+
+    @Value("${staff.provisioning.batch-size:50}")
+    private int batchSize;
+
+    @Value("${staff.provisioning.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${staff.provisioning.initial-backoff-ms:5000}")
+    private long initialBackoffMs;
+
+    @Value("${staff.provisioning.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${staff.provisioning.lease-ms:60000}")
+    private long leaseMs;
+
+    public StaffProvisioningService(StaffRepositoy staffRepository, KeycloakUserService keycloakUserService,
+            @Qualifier("provisioningExecutor") ThreadPoolTaskExecutor executor) {
+        this.staffRepository = staffRepository;
+        this.keycloakUserService = keycloakUserService;
+        this.executor = executor;
+    }
+
+    // Appelé dans la transaction de création : le staff n'est visible (et provisionné) qu'après le commit
+    public void provisionAfterCommit(Long staffId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            submit(staffId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(staffId);
+            }
+        });
+    }
+
+    // Import en masse : provisionne des staffs déjà commités, au plus staff.provisioning.concurrency à la fois.
+    // Le futur se termine quand tous les essais acceptés par l'executor sont finis ; les refusés restent PENDING.
+    public CompletableFuture<Void> provisionAll(List<Long> staffIds) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(staffIds.size());
+        for (Long id : staffIds) {
+            try {
+                futures.add(executor.submitCompletable(() -> provision(id)));
+            } catch (TaskRejectedException e) {
+                log.debug("File de provisioning pleine, staff {} laissé au poller", id);
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
+    }
+
+    private void submit(Long staffId) {
+        try {
+            executor.execute(() -> provision(staffId));
+        } catch (TaskRejectedException e) {
+            log.debug("File de provisioning pleine, staff {} laissé au poller", staffId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${staff.provisioning.poll-interval-ms:5000}")
+    public void provisionDue() {
+        for (Long id : staffRepository.findDueForProvisioning(LocalDateTime.now(), batchSize)) {
+            submit(id);
+        }
+    }
+
+    // Relance un staff FAILED ; false s'il n'était pas en échec
+    public boolean retry(Long staffId) {
+        if (staffRepository.retryProvisioning(staffId, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        provisionAfterCommit(staffId);
+        return true;
+    }
+
+    void provision(Long staffId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (staffRepository.claimProvisioning(staffId, now, now.plus(Duration.ofMillis(leaseMs))) == 0) {
+            return;
+        }
+        Staff staff = staffRepository.findById(staffId).orElse(null);
+        if (staff == null || !IN_PROGRESS.contains(staff.getProvisioningStatus())) {
+            return;
+        }
+        try {
+            String kcId = staff.getKeycloakId();
+            if (kcId == null) {
+                kcId = keycloakUserService.createUser(staff.getEmail(), staff.getEmail(), generateRandomPassword(),
+                        staffId);
+                staffRepository.markKeycloakUserCreated(staffId, kcId);
+            }
+            keycloakUserService.assignRealmRoleToUser(kcId, roleFor(staff.getType()));
+            staffRepository.markProvisioned(staffId);
+            log.info("Compte Keycloak provisionné pour le staff {} ({})", staffId, kcId);
+        } catch (KeycloakUserConflictException e) {
+            // Aucun nouvel essai n'y changerait rien : à régler à la main, puis retry()
+            staffRepository.markProvisioningFailed(staffId, ProvisioningStatus.FAILED.name(),
+                    truncate(e.getClass().getSimpleName() + ": " + e.getMessage()), null);
+            log.error("Provisioning Keycloak abandonné pour le staff {} : {}", staffId, e.getMessage());
+        } catch (Exception e) {
+            failed(staffId, e);
+        }
+    }
+
+    private void failed(Long staffId, Exception error) {
+        // Relu : l'utilisateur a pu être créé avant l'erreur
+        Staff staff = staffRepository.findById(staffId).orElse(null);
+        if (staff == null) {
+            return;
+        }
+        int attempts = staff.getProvisioningAttempts() + 1;
+        String message = truncate(error.getClass().getSimpleName() + ": " + error.getMessage());
+        if (attempts >= maxAttempts) {
+            staffRepository.markProvisioningFailed(staffId, ProvisioningStatus.FAILED.name(), message, null);
+            log.error("Provisioning Keycloak abandonné pour le staff {} après {} essais", staffId, attempts, error);
+            return;
+        }
+        long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempts - 1, 20));
+        staffRepository.markProvisioningFailed(staffId, staff.getProvisioningStatus().name(), message,
+                LocalDateTime.now().plus(Duration.ofMillis(backoff)));
+        log.warn("Provisioning Keycloak du staff {} en échec (essai {}), nouvel essai dans {} ms : {}", staffId,
+                attempts, backoff, message);
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+
+    // Mapping StaffType -> Role Keycloak
+    static String roleFor(StaffType type) {
+        return switch (type) {
+            case MEDECIN -> "ROLE_MEDECIN";
+            case SECRETAIRE -> "ROLE_SECRETAIRE";
+            case INFIRMIER -> "ROLE_INFIRMIER";
+            case TECHNICIEN -> "ROLE_TECHNICIEN";
+            case AIDE_SOIGNANT -> "ROLE_AIDE_SOIGNANT";
+        };
+    }
+
+    private String generateRandomPassword() {
+        // simple exemple — remplace par un vrai générateur sécurisé
+        return "Passw0rd!" + System.currentTimeMillis() % 10000;
+    }
+}
@@ -1,6 +1,7 @@
 package com.medinsight.staff.services;
 
 import com.medinsight.staff.DTO.StaffDTO;
+import com.medinsight.staff.entities.ProvisioningStatus;
 import com.medinsight.staff.entities.Staff;
 import com.medinsight.staff.exception.ResourceNotFoundException;
 import com.medinsight.staff.repositories.StaffRepositoy;
@@ -8,8 +9,10 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -20,7 +23,7 @@ import java.util.stream.Collectors;
 public class Staffservice {
     @Autowired
     private final StaffRepositoy staffRepository;
-    private final KeycloakUserService keycloakUserService; // injecté
+    private final StaffProvisioningService provisioningService;
     // Mapper pour convertir Entity -> DTO
 
     private StaffDTO toDTO(Staff staff) {
@@ -37,11 +40,14 @@ public class Staffservice {
                 .dateEmbauche(staff.getDateEmbauche())
                 .createdAt(staff.getCreatedAt())
                 .updatedAt(staff.getUpdatedAt())
+                .keycloakId(staff.getKeycloakId())
+                .provisioningStatus(staff.getProvisioningStatus())
+                .provisioningError(staff.getProvisioningError())
                 .build();
     }
 
     // Mapper pour convertir DTO -> Entity
-    private Staff toEntity(StaffDTO dto) {
+    Staff toEntity(StaffDTO dto) {
         return Staff.builder()
                 .id(dto.getId())
                 .nom(dto.getNom())
@@ -57,6 +63,8 @@ public class Staffservice {
     }
 
     // CRÉER un nouveau staff
+    // Seule l'insertion locale a lieu ici : le compte Keycloak est créé après le commit par
+    // StaffProvisioningService (provisioningStatus PENDING dans la réponse)
     public StaffDTO createStaff(StaffDTO staffDTO) {
         log.info("Création d'un nouveau staff: {}", staffDTO.getEmail());
 
@@ -66,41 +74,13 @@ public class Staffservice {
         }
 
         Staff staff = toEntity(staffDTO);
+        staff.setProvisioningStatus(ProvisioningStatus.PENDING);
+        staff.setProvisioningNextAttemptAt(LocalDateTime.now());
         Staff savedStaff = staffRepository.save(staff);
         log.info("Staff créé avec succès: {}", savedStaff.getId());
 
-        // Création user Keycloak
-        String generatedPassword = generateRandomPassword(); // méthode utilitaire (ou demander mot de passe)
-        String kcId = keycloakUserService.createUser(savedStaff.getEmail(), savedStaff.getEmail(), generatedPassword);
-
-        // Assigner rôle
-        // Mapping StaffType -> Role Keycloak
-        String roleKeycloak;
-        switch (staffDTO.getType()) {
-            case MEDECIN -> roleKeycloak = "ROLE_MEDECIN";
-            case SECRETAIRE -> roleKeycloak = "ROLE_SECRETAIRE";
-            case INFIRMIER -> roleKeycloak = "ROLE_INFIRMIER";
-            case TECHNICIEN -> roleKeycloak = "ROLE_TECHNICIEN";
-            case AIDE_SOIGNANT -> roleKeycloak = "ROLE_AIDE_SOIGNANT";
-            default -> throw new IllegalArgumentException("Type de staff inconnu");
-        }
-
-        // Attribuer le rôle correct
-        keycloakUserService.assignRealmRoleToUser(kcId, roleKeycloak);
-
-        // Sauvegarder keycloakId dans la table staff
-        savedStaff.setKeycloakId(kcId);
-        staffRepository.save(savedStaff);
-
-        StaffDTO outDto = toDTO(savedStaff);
-        outDto.setKeycloakId(kcId);
-
-        return outDto;
-    }
-
-    private String generateRandomPassword() {
-        // simple exemple — remplace par un vrai générateur sécurisé
-        return "Passw0rd!" + System.currentTimeMillis() % 10000;
+        provisioningService.provisionAfterCommit(savedStaff.getId());
+        return toDTO(savedStaff);
     }
 
     // RÉCUPÉRER tous les staffs
@@ -157,6 +137,20 @@ public class Staffservice {
         log.info("Staff supprimé avec succès: {}", id);
     }
 
+    // RELANCER le provisioning Keycloak d'un staff en échec
+    // Hors transaction : la remise en PENDING doit être commitée avant que le provisioning ne la lise
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public StaffDTO retryProvisioning(Long id) {
+        Staff staff = staffRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Staff non trouvé avec l'ID: " + id));
+        if (!provisioningService.retry(id)) {
+            throw new IllegalArgumentException("Le provisioning du staff " + id + " n'est pas en échec ("
+                    + staff.getProvisioningStatus() + ")");
+        }
+        return toDTO(staffRepository.findById(id).orElse(staff));
+    }
+
     // RÉCUPÉRER les staffs actifs
     @Transactional(readOnly = true)
     public List<StaffDTO> getActiveStaff() {
@@ -0,0 +1,14 @@
+-- V2__staff_provisioning.sql
+-- Provisioning Keycloak asynchrone : état de création du compte de chaque staff (voir StaffProvisioningService)
+
+-- Les staffs existants ont été créés avec leur compte (création synchrone) : PROVISIONED
+ALTER TABLE staff
+    ADD COLUMN provisioning_status VARCHAR(20) NOT NULL DEFAULT 'PROVISIONED',
+    ADD COLUMN provisioning_attempts INT NOT NULL DEFAULT 0,
+    ADD COLUMN provisioning_next_attempt_at DATETIME NULL,
+    ADD COLUMN provisioning_error VARCHAR(500) NULL;
+
+ALTER TABLE staff ALTER COLUMN provisioning_status SET DEFAULT 'PENDING';
+
+-- Index pour le poller : staffs dus par état et échéance
+CREATE INDEX idx_provisioning_due ON staff (provisioning_status, provisioning_next_attempt_at);
@@ -0,0 +1,12 @@
+-- V3__staff_id_generator.sql
+-- Ids des staffs attribués par Hibernate depuis une table (pool de 50) au lieu d'AUTO_INCREMENT,
+-- pour permettre les INSERT en batch JDBC (import en masse)
+
+CREATE TABLE IF NOT EXISTS id_generator (
+    sequence_name VARCHAR(50) NOT NULL PRIMARY KEY,
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+-- Démarre au-delà des ids existants (avec une marge d'un pool)
+INSERT INTO id_generator (sequence_name, next_val)
+SELECT 'staff', COALESCE(MAX(id), 0) + 100 FROM staff;
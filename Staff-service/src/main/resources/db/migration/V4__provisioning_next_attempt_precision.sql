@@ -0,0 +1,6 @@
+-- V4__provisioning_next_attempt_precision.sql
+-- DATETIME sans fraction arrondit LocalDateTime.now() à la seconde, souvent vers le haut : le claim
+-- immédiat (provisioning_next_attempt_at <= now) échouait et le staff attendait le poller.
+-- Précision à la microseconde, comme les LocalDateTime envoyés par l'application.
+
+ALTER TABLE staff MODIFY provisioning_next_attempt_at DATETIME(6) NULL;
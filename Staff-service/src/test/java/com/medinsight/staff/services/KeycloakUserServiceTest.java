@@ -0,0 +1,87 @@
+package com.medinsight.staff.services;
+
+import com.medinsight.staff.exception.KeycloakUserConflictException;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.keycloak.admin.client.Keycloak;
+import org.keycloak.admin.client.resource.UsersResource;
+import org.keycloak.representations.idm.UserRepresentation;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeycloakUserServiceTest {
+
+    private final Keycloak keycloak = mock(Keycloak.class, RETURNS_DEEP_STUBS);
+    private final UsersResource users = mock(UsersResource.class, RETURNS_DEEP_STUBS);
+    private final KeycloakUserService service = new KeycloakUserService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "keycloak", keycloak);
+        when(keycloak.realm("microservices-realm").users()).thenReturn(users);
+    }
+
+    @Test
+    void createdUserCarriesTheStaffId() {
+        when(users.create(any())).thenReturn(Response.created(URI.create("http://kc/users/kc-1")).build());
+
+        assertThat(service.createUser("a@b.tn", "a@b.tn", "pw", 7L)).isEqualTo("kc-1");
+
+        ArgumentCaptor<UserRepresentation> created = ArgumentCaptor.forClass(UserRepresentation.class);
+        verify(users).create(created.capture());
+        assertThat(created.getValue().firstAttribute("staffId")).isEqualTo("7");
+    }
+
+    @Test
+    void conflictReusesTheUserCreatedForThisStaff() {
+        conflictWith(userFor("7"));
+
+        assertThat(service.createUser("a@b.tn", "a@b.tn", "pw", 7L)).isEqualTo("kc-1");
+    }
+
+    @Test
+    void conflictWithAnotherStaffsUserIsRefused() {
+        conflictWith(userFor("8"));
+
+        assertThatThrownBy(() -> service.createUser("a@b.tn", "a@b.tn", "pw", 7L))
+                .isInstanceOf(KeycloakUserConflictException.class);
+    }
+
+    @Test
+    void conflictWithAnUntaggedUserIsRefused() {
+        conflictWith(userFor(null));
+
+        assertThatThrownBy(() -> service.createUser("a@b.tn", "a@b.tn", "pw", 7L))
+                .isInstanceOf(KeycloakUserConflictException.class);
+    }
+
+    private void conflictWith(UserRepresentation existing) {
+        when(users.create(any())).thenReturn(Response.status(409).build());
+        UserRepresentation brief = new UserRepresentation();
+        brief.setId("kc-1");
+        when(users.searchByUsername("a@b.tn", true)).thenReturn(List.of(brief));
+        when(users.get("kc-1").toRepresentation()).thenReturn(existing);
+    }
+
+    private static UserRepresentation userFor(String staffId) {
+        UserRepresentation user = new UserRepresentation();
+        user.setId("kc-1");
+        user.setUsername("a@b.tn");
+        if (staffId != null) {
+            user.singleAttribute("staffId", staffId);
+        }
+        return user;
+    }
+}
@@ -0,0 +1,188 @@
+package com.medinsight.staff.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.medinsight.staff.DTO.StaffImportResult;
+import com.medinsight.staff.entities.ProvisioningStatus;
+import com.medinsight.staff.entities.Staff;
+import com.medinsight.staff.entities.StaffType;
+import com.medinsight.staff.repositories.StaffRepositoy;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StaffImportServiceTest {
+
+    private static final String HEADER = "nom,prenom,email,telephone,type,specialite,numeroLicence\r\n";
+
+    private final StaffRepositoy repository = mock(StaffRepositoy.class);
+    private final StaffProvisioningService provisioning = mock(StaffProvisioningService.class);
+    private final List<Staff> saved = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong(100);
+    private StaffImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StaffImportService(repository, new Staffservice(repository, provisioning), provisioning,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper());
+        ReflectionTestUtils.setField(service, "chunkSize", 100);
+        ReflectionTestUtils.setField(service, "provisioningTimeoutMs", 1000L);
+
+        when(repository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Staff> staffs = inv.getArgument(0);
+            staffs.forEach(this::store);
+            return staffs;
+        });
+        when(repository.save(any(Staff.class))).thenAnswer(inv -> store(inv.getArgument(0)));
+        when(repository.findAllById(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> wanted = inv.getArgument(0);
+            return saved.stream().filter(s -> wanted.contains(s.getId())).toList();
+        });
+        when(provisioning.provisionAll(anyList())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void readsQuotedFieldsCrlfAndBlankLines() throws IOException {
+        String csv = "email,nom,prenom,telephone,type,specialite,numeroLicence,actif,dateEmbauche,commentaire\r\n"
+                + "a@x.fr,\"Dupont, Jr\",Jean,0600000001,medecin,Cardiologie,L-1,false,2024-03-01,"
+                + "\"il a dit \"\"bonjour\"\"\"\r\n"
+                + "\r\n"
+                + "\n"
+                + "b@x.fr,Martin,\"Anne\r\nMarie\",0600000002,INFIRMIER,,,,2024-03-01T08:30:00";
+
+        List<StaffImportResult> results = importCsv(csv);
+
+        assertThat(results).extracting(StaffImportResult::getRow).containsExactly(1, 2);
+        assertThat(results).extracting(StaffImportResult::getStatus)
+                .containsOnly(StaffImportResult.Status.CREATED);
+        Staff first = saved.get(0);
+        assertThat(first.getNom()).isEqualTo("Dupont, Jr");
+        assertThat(first.getType()).isEqualTo(StaffType.MEDECIN);
+        assertThat(first.getNumeroLicence()).isEqualTo("L-1");
+        assertThat(first.getActif()).isFalse();
+        assertThat(first.getDateEmbauche()).isEqualTo(LocalDateTime.of(2024, 3, 1, 0, 0));
+        Staff second = saved.get(1);
+        assertThat(second.getPrenom()).isEqualTo("Anne\r\nMarie");
+        assertThat(second.getSpecialite()).isNull();
+        assertThat(second.getNumeroLicence()).isNull();
+        assertThat(second.getActif()).isTrue();
+        assertThat(second.getDateEmbauche()).isEqualTo(LocalDateTime.of(2024, 3, 1, 8, 30));
+        assertThat(second.getProvisioningStatus()).isEqualTo(ProvisioningStatus.PENDING);
+    }
+
+    @Test
+    void badRowsAreReportedAndTheOthersImported() throws IOException {
+        String csv = HEADER
+                + "Dupont,Jean,a@x.fr,0600000001,CHIRURGIEN,,\r\n"
+                + "Martin,Anne,,0600000002,INFIRMIER,,\r\n"
+                + "Durand,Paul,c@x.fr,0600000003,SECRETAIRE,,\r\n";
+
+        List<StaffImportResult> results = importCsv(csv);
+
+        assertThat(results).extracting(StaffImportResult::getStatus).containsExactly(
+                StaffImportResult.Status.INVALID, StaffImportResult.Status.INVALID,
+                StaffImportResult.Status.CREATED);
+        assertThat(results.get(0).getMessage()).isEqualTo("Type de staff inconnu : CHIRURGIEN");
+        assertThat(results.get(1).getMessage()).startsWith("email : ");
+        assertThat(saved).extracting(Staff::getEmail).containsExactly("c@x.fr");
+    }
+
+    @Test
+    void duplicatesInTheFileAndInTheDatabaseAreRejected() throws IOException {
+        when(repository.findTakenEmailsAndLicences(anyCollection(), anyCollection())).thenReturn(List.of(
+                new Object[] { "D@x.fr", null },
+                new Object[] { "other@x.fr", "l-9" }));
+        String csv = HEADER
+                + "A,A,a@x.fr,01,MEDECIN,,L-1\r\n"
+                + "B,B,A@X.FR,02,MEDECIN,,L-2\r\n"
+                + "C,C,c@x.fr,03,MEDECIN,,L-1\r\n"
+                + "D,D,d@x.fr,04,MEDECIN,,\r\n"
+                + "E,E,e@x.fr,05,MEDECIN,,L-9\r\n"
+                + "F,F,f@x.fr,06,MEDECIN,,\r\n";
+
+        List<StaffImportResult> results = importCsv(csv);
+
+        assertThat(results).extracting(StaffImportResult::getStatus).containsExactly(
+                StaffImportResult.Status.CREATED, StaffImportResult.Status.DUPLICATE,
+                StaffImportResult.Status.DUPLICATE, StaffImportResult.Status.DUPLICATE,
+                StaffImportResult.Status.DUPLICATE, StaffImportResult.Status.CREATED);
+        assertThat(results.get(1).getMessage()).isEqualTo("Un staff avec cet email existe déjà");
+        assertThat(results.get(2).getMessage()).isEqualTo("Un staff avec ce numéro de licence existe déjà");
+        assertThat(results.get(3).getMessage()).isEqualTo("Un staff avec cet email existe déjà");
+        assertThat(results.get(4).getMessage()).isEqualTo("Un staff avec ce numéro de licence existe déjà");
+        assertThat(saved).extracting(Staff::getEmail).containsExactly("a@x.fr", "f@x.fr");
+    }
+
+    @Test
+    void failedBatchFallsBackToSingleInserts() throws IOException {
+        when(repository.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("Duplicate entry"));
+        when(repository.save(any(Staff.class))).thenAnswer(inv -> {
+            Staff staff = inv.getArgument(0);
+            if (staff.getEmail().equals("taken@x.fr")) {
+                throw new DataIntegrityViolationException("Duplicate entry 'taken@x.fr'");
+            }
+            return store(staff);
+        });
+        String csv = HEADER
+                + "A,A,a@x.fr,01,MEDECIN,,\r\n"
+                + "B,B,taken@x.fr,02,MEDECIN,,\r\n"
+                + "C,C,c@x.fr,03,MEDECIN,,\r\n";
+
+        List<StaffImportResult> results = importCsv(csv);
+
+        assertThat(results).extracting(StaffImportResult::getStatus).containsExactly(
+                StaffImportResult.Status.CREATED, StaffImportResult.Status.DUPLICATE,
+                StaffImportResult.Status.CREATED);
+        assertThat(results.get(0).getId()).isNotNull();
+        assertThat(saved).extracting(Staff::getEmail).containsExactly("a@x.fr", "c@x.fr");
+    }
+
+    @Test
+    void resultsKeepFileOrderAcrossChunks() throws IOException {
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 5; i++) {
+            csv.append("N,P,s").append(i).append("@x.fr,0").append(i).append(",TECHNICIEN,,\r\n");
+        }
+
+        List<StaffImportResult> results = importCsv(csv.toString());
+
+        assertThat(results).extracting(StaffImportResult::getRow).containsExactly(1, 2, 3, 4, 5);
+        assertThat(results).extracting(StaffImportResult::getEmail)
+                .containsExactly("s1@x.fr", "s2@x.fr", "s3@x.fr", "s4@x.fr", "s5@x.fr");
+    }
+
+    private Staff store(Staff staff) {
+        staff.setId(ids.incrementAndGet());
+        saved.add(staff);
+        return staff;
+    }
+
+    private List<StaffImportResult> importCsv(String csv) throws IOException {
+        List<StaffImportResult> results = new ArrayList<>();
+        service.importStaff(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                StaffImportService.Format.CSV, results::add);
+        return results;
+    }
+}
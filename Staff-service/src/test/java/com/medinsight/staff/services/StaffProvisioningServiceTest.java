@@ -0,0 +1,145 @@
+package com.medinsight.staff.services;
+
+import com.medinsight.staff.entities.ProvisioningStatus;
+import com.medinsight.staff.entities.Staff;
+import com.medinsight.staff.entities.StaffType;
+import com.medinsight.staff.exception.KeycloakUserConflictException;
+import com.medinsight.staff.repositories.StaffRepositoy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StaffProvisioningServiceTest {
+
+    private static final Long ID = 7L;
+
+    private final StaffRepositoy repository = mock(StaffRepositoy.class);
+    private final KeycloakUserService keycloak = mock(KeycloakUserService.class);
+    private final StaffProvisioningService service =
+            new StaffProvisioningService(repository, keycloak, mock(ThreadPoolTaskExecutor.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 5000L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 60000L);
+        ReflectionTestUtils.setField(service, "leaseMs", 60000L);
+        when(repository.claimProvisioning(eq(ID), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void createsTheUserThenAssignsTheRole() {
+        stored(ProvisioningStatus.PENDING, null, 0);
+        when(keycloak.createUser(eq("a@b.tn"), eq("a@b.tn"), anyString(), eq(ID))).thenReturn("kc-1");
+
+        service.provision(ID);
+
+        verify(repository).markKeycloakUserCreated(ID, "kc-1");
+        verify(keycloak).assignRealmRoleToUser("kc-1", "ROLE_MEDECIN");
+        verify(repository).markProvisioned(ID);
+    }
+
+    @Test
+    void leaseHeldByAnotherInstanceMeansNothingToDo() {
+        when(repository.claimProvisioning(eq(ID), any(), any())).thenReturn(0);
+
+        service.provision(ID);
+
+        verifyNoInteractions(keycloak);
+        verify(repository, never()).findById(any());
+    }
+
+    @Test
+    void claimTakesALeaseOfLeaseMs() {
+        when(repository.claimProvisioning(eq(ID), any(), any())).thenReturn(0);
+
+        service.provision(ID);
+
+        ArgumentCaptor<LocalDateTime> now = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> leaseUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).claimProvisioning(eq(ID), now.capture(), leaseUntil.capture());
+        assertThat(Duration.between(now.getValue(), leaseUntil.getValue())).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void userCreatedEarlierIsNotCreatedAgain() {
+        stored(ProvisioningStatus.USER_CREATED, "kc-1", 1);
+
+        service.provision(ID);
+
+        verify(keycloak, never()).createUser(any(), any(), any(), any());
+        verify(keycloak).assignRealmRoleToUser("kc-1", "ROLE_MEDECIN");
+        verify(repository).markProvisioned(ID);
+    }
+
+    @Test
+    void failureIsRetriedWithExponentialBackoff() {
+        stored(ProvisioningStatus.PENDING, null, 1);
+        when(keycloak.createUser(any(), any(), any(), any())).thenThrow(new RuntimeException("Keycloak down"));
+        LocalDateTime before = LocalDateTime.now();
+
+        service.provision(ID);
+
+        // Second attempt: 5 s << 1
+        ArgumentCaptor<LocalDateTime> next = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(repository).markProvisioningFailed(eq(ID), eq("PENDING"), eq("RuntimeException: Keycloak down"),
+                next.capture());
+        assertThat(next.getValue()).isBetween(before.plusSeconds(10), LocalDateTime.now().plusSeconds(10));
+    }
+
+    @Test
+    void lastAttemptMarksTheStaffFailed() {
+        stored(ProvisioningStatus.USER_CREATED, "kc-1", 2);
+        doThrow(new RuntimeException("role missing")).when(keycloak).assignRealmRoleToUser(any(), any());
+
+        service.provision(ID);
+
+        verify(repository).markProvisioningFailed(eq(ID), eq("FAILED"), anyString(), isNull());
+    }
+
+    @Test
+    void usernameTakenByAnUnrelatedUserFailsWithoutRetry() {
+        stored(ProvisioningStatus.PENDING, null, 0);
+        when(keycloak.createUser(any(), any(), any(), any()))
+                .thenThrow(new KeycloakUserConflictException("Utilisateur Keycloak a@b.tn déjà existant"));
+
+        service.provision(ID);
+
+        verify(repository).markProvisioningFailed(eq(ID), eq("FAILED"), anyString(), isNull());
+        verify(repository, never()).markKeycloakUserCreated(any(), any());
+        verify(keycloak, never()).assignRealmRoleToUser(any(), any());
+    }
+
+    private void stored(ProvisioningStatus status, String keycloakId, int attempts) {
+        when(repository.findById(ID)).thenReturn(Optional.of(staff(status, keycloakId, attempts)));
+    }
+
+    private static Staff staff(ProvisioningStatus status, String keycloakId, int attempts) {
+        Staff staff = new Staff();
+        staff.setId(ID);
+        staff.setEmail("a@b.tn");
+        staff.setType(StaffType.MEDECIN);
+        staff.setKeycloakId(keycloakId);
+        staff.setProvisioningStatus(status);
+        staff.setProvisioningAttempts(attempts);
+        return staff;
+    }
+}